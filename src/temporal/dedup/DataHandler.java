@@ -1,19 +1,41 @@
 package temporal.dedup;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
-import java.io.PrintWriter;
-import java.io.UnsupportedEncodingException;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Set;
-
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import temporal.dedup.index.KeyValueIndex;
+import temporal.dedup.io.InputSources;
+import temporal.dedup.io.MappedTsvReader;
+import temporal.dedup.io.RowWriter;
+import temporal.dedup.io.SnapshotFormat;
+import temporal.dedup.records.ColumnStore;
 import temporal.dedup.records.DataRecord;
 import temporal.dedup.records.KeyAttribute;
 import temporal.dedup.records.LogicalAttribute;
+import temporal.dedup.records.ParsePlan;
+import temporal.dedup.records.SampledKeyInference;
+import temporal.dedup.records.SketchedKeyInference;
+import temporal.dedup.records.StatisticsCatalog;
+import temporal.dedup.records.TimestampConverter;
+import temporal.dedup.utils.DuplicateClusters;
 import temporal.dedup.utils.StringUtils;
 
 /**
@@ -23,30 +45,82 @@ import temporal.dedup.utils.StringUtils;
  */
 public class DataHandler
 {
+    /**
+     * Ways of inferring the key attribute(s)
+     */
+    public enum KeyInferenceMode
+    {
+        EXACT, // counts the distinct values of every eligible attribute and attribute pair
+        SKETCH, // estimates the distinct values of attribute pairs, verifying only the top candidates (see
+                // SketchedKeyInference)
+        SAMPLE // ranks attributes and attribute pairs on a sample of the records, counting only the top candidates
+               // (see SampledKeyInference)
+    }
+
+    /**
+     * Defaults for the SAMPLE key inference mode
+     */
+    public static final int DEFAULT_KEY_SAMPLE_SIZE = 10000;
+    public static final int DEFAULT_KEY_CANDIDATES = 8;
+
+    /*
+     * Number of chunks per thread the input is divided into when parsing in parallel
+     */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    /*
+     * Size of the buffer between a snapshot file and its stream
+     */
+    private static final int SNAPSHOT_BUFFER_SIZE = 1 << 16;
+
     private int recordNum;
     private ArrayList<DataRecord> records;
+    private ColumnStore store;
     private String rawHeaders;
     private ArrayList<String> headers;
     private boolean readHeader;
 
     private KeyAttribute key;
+    private KeyValueIndex keyValueIndex;
     private ArrayList<Integer> logicalAttributeStartIndices;
     private int logicalAttributeLength;
-
+    private ParsePlan parsePlan;
+    private TimestampConverter[] converters;
+    private int recordTypeIndex;
+    private KeyInferenceMode keyInferenceMode;
+    private int keySampleSize;
+    private int keyCandidates;
+    private StatisticsCatalog statisticsCatalog;
+    private int numThreads;
+
+    private String datasetName;
+    private String outputDirectory;
     private long inferenceTime;
 
     public DataHandler()
     {
         recordNum = 0;
         records = new ArrayList<DataRecord>();
+        store = new ColumnStore();
         rawHeaders = "";
         headers = new ArrayList<String>();
         readHeader = false;
 
         key = new KeyAttribute();
+        keyValueIndex = null;
         logicalAttributeStartIndices = new ArrayList<Integer>();
         logicalAttributeLength = 0;
-
+        parsePlan = null;
+        converters = null;
+        recordTypeIndex = -1;
+        keyInferenceMode = KeyInferenceMode.EXACT;
+        keySampleSize = DEFAULT_KEY_SAMPLE_SIZE;
+        keyCandidates = DEFAULT_KEY_CANDIDATES;
+        statisticsCatalog = null;
+        numThreads = Runtime.getRuntime().availableProcessors();
+
+        datasetName = "";
+        outputDirectory = "output";
         inferenceTime = 0;
     }
 
@@ -55,6 +129,16 @@ public class DataHandler
         return records;
     }
 
+    /**
+     * Returns the column-oriented store holding the raw attribute values of every record.
+     * 
+     * @return store of raw attribute values
+     */
+    public ColumnStore getColumnStore()
+    {
+        return store;
+    }
+
     public long getInferenceTime()
     {
         return inferenceTime;
@@ -65,16 +149,77 @@ public class DataHandler
         return headers;
     }
 
+    /**
+     * Returns the grouping of records by shared key value(s). Only available once parseFile has completed.
+     * 
+     * @return index from key value(s) to the IDs of the records holding them
+     */
+    public KeyValueIndex getKeyValueIndex()
+    {
+        return keyValueIndex;
+    }
+
+    /**
+     * Returns the statistics of every column (distinct values, null values and most frequent values), gathering them
+     * if they have not been already (e.g. for a dataset restored from a snapshot).
+     * 
+     * @return catalog of column statistics
+     */
+    public StatisticsCatalog getStatisticsCatalog()
+    {
+        if (statisticsCatalog == null)
+        {
+            statisticsCatalog = StatisticsCatalog.build(store, numThreads);
+        }
+
+        return statisticsCatalog;
+    }
+
+    /**
+     * Sets the number of threads used to gather the column statistics (defaults to the number of available
+     * processors).
+     * 
+     * @param _numThreads number of threads
+     */
+    public void setNumThreads(int _numThreads)
+    {
+        numThreads = _numThreads;
+    }
+
+    /**
+     * Sets the way the key attribute(s) are inferred once the dataset has been read. Must be called before parsing.
+     * 
+     * @param _mode key inference mode (defaults to EXACT)
+     */
+    public void setKeyInferenceMode(KeyInferenceMode _mode)
+    {
+        keyInferenceMode = _mode;
+    }
+
+    /**
+     * Sets the sample the SAMPLE key inference mode ranks candidate keys on. Must be called before parsing.
+     * 
+     * @param _sampleSize    number of records sampled (defaults to 10000)
+     * @param _numCandidates number of top-ranked candidate keys whose values are then counted across every record
+     *                       (defaults to 8)
+     */
+    public void setKeySampling(int _sampleSize, int _numCandidates)
+    {
+        keySampleSize = _sampleSize;
+        keyCandidates = _numCandidates;
+    }
+
     /**
      * Limitation: assumes _file is tab-delimited
      * 
-     * @param _file
+     * @param _file plain, gzip or zip entry input (see InputSources); compressed inputs are decompressed on a separate
+     *              thread while they are parsed
      */
     public void parseFile(String _file)
     {
         try
         {
-            BufferedReader buf = new BufferedReader(new FileReader(_file));
+            BufferedReader buf = InputSources.openReader(_file);
             String lineJustFetched = null;
 
             while (true)
@@ -86,19 +231,7 @@ public class DataHandler
                 }
                 else if (!readHeader)
                 {
-                    rawHeaders = new String(lineJustFetched);
-
-                    String[] columns = lineJustFetched.split("\t");
-
-                    for (int i = 0; i < columns.length; ++i)
-                    {
-                        headers.add(columns[i]);
-                    }
-
-                    // now that we know the header values, we may infer logical attributes
-                    logicalAttributeInference();
-
-                    readHeader = true;
+                    parseHeader(lineJustFetched);
                 }
                 else
                 {
@@ -110,26 +243,48 @@ public class DataHandler
 
             buf.close();
 
-            // determine the key attribute(s)
-            key = keyInference();
+            completeParse();
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace();
+        }
+    }
 
-            // determine the attribute that defines the record type (temporal grouping value) and apply it to all
-            // records
-            int typeAttribute = recordTypeInference();
+    /**
+     * Equivalent to parseFile, but reads the file through a memory-mapped window (see MappedTsvReader) rather than a
+     * character stream. Delimiters are found by scanning the mapped bytes, and each field is encoded straight from the
+     * mapped bytes into the dictionary of its column, so a distinct value within a column is only decoded once.
+     * 
+     * Limitation: assumes _file is tab-delimited
+     * 
+     * @param _file
+     */
+    public void parseMappedFile(String _file)
+    {
+        try
+        {
+            MappedTsvReader reader = new MappedTsvReader(_file);
+            int[] codes = new int[0];
 
-            for (int i = 0; i < records.size(); ++i)
+            while (reader.nextLine())
             {
-                records.get(i).applyKey(key);
-
-                if (key.getLength() == 1)
+                if (!readHeader)
                 {
-                    records.get(i).applyGlobalRecordType();
+                    parseHeader(reader.getLine());
                 }
                 else
                 {
-                    records.get(i).applyRecordType(typeAttribute);
+                    codes = growIfNeeded(codes, reader.getNumFields());
+                    int row = readRow(reader, store, codes);
+
+                    records.add(parseRow(row));
                 }
             }
+
+            reader.close();
+
+            completeParse();
         }
         catch (Exception e)
         {
@@ -137,6 +292,377 @@ public class DataHandler
         }
     }
 
+    /**
+     * Equivalent to parseMappedFile, but parses the records across a pool of _numThreads threads. The records following
+     * the header row are divided into newline-aligned chunks (see MappedTsvReader.findLineBoundaries). The lines of
+     * every chunk are counted first so that each chunk knows the record ID of its first line; the chunks are then parsed
+     * concurrently, including the construction of their logical attributes and aggregate fields, and are appended to
+     * the records in file order. Record IDs are therefore identical to those of the sequential parse and still match
+     * the line numbering of the truth data.
+     * 
+     * Limitation: assumes _file is tab-delimited
+     * 
+     * @param _file
+     * @param _numThreads number of threads to parse with
+     */
+    public void parseFileInParallel(String _file, int _numThreads)
+    {
+        ForkJoinPool pool = new ForkJoinPool(_numThreads);
+
+        try
+        {
+            // the header row establishes the layout every chunk is parsed against
+            MappedTsvReader reader = new MappedTsvReader(_file);
+            long dataStart = 0;
+            if (reader.nextLine())
+            {
+                parseHeader(reader.getLine());
+                dataStart = reader.getPosition();
+            }
+            reader.close();
+
+            // several chunks per thread keep the threads busy when chunks parse at different rates
+            final long[] boundaries = MappedTsvReader.findLineBoundaries(_file, dataStart,
+                    _numThreads * CHUNKS_PER_THREAD);
+            int numChunks = boundaries.length - 1;
+
+            System.out.println("Parsing " + numChunks + " chunks using " + _numThreads + " threads");
+
+            // count the lines of each chunk so that each chunk knows the record ID of its first line
+            ArrayList<ForkJoinTask<Integer>> counts = new ArrayList<ForkJoinTask<Integer>>(numChunks);
+            for (int c = 0; c < numChunks; ++c)
+            {
+                final int chunk = c;
+
+                counts.add(pool.submit(new Callable<Integer>()
+                {
+                    @Override
+                    public Integer call() throws IOException
+                    {
+                        return countLines(_file, boundaries[chunk], boundaries[chunk + 1]);
+                    }
+                }));
+            }
+
+            ArrayList<ForkJoinTask<ArrayList<DataRecord>>> chunks = new ArrayList<ForkJoinTask<ArrayList<DataRecord>>>(
+                    numChunks);
+            final long[] chunkInferenceTimes = new long[numChunks];
+
+            // each chunk is parsed into a store of its own, which is appended to the shared store once parsed
+            final ColumnStore[] chunkStores = new ColumnStore[numChunks];
+            int firstId = recordNum;
+            for (int c = 0; c < numChunks; ++c)
+            {
+                final int chunk = c;
+                final int chunkFirstId = firstId;
+                chunkStores[c] = new ColumnStore();
+
+                chunks.add(pool.submit(new Callable<ArrayList<DataRecord>>()
+                {
+                    @Override
+                    public ArrayList<DataRecord> call() throws IOException
+                    {
+                        long[] chunkInferenceTime = new long[1];
+                        ArrayList<DataRecord> parsed = parseChunk(_file, boundaries[chunk], boundaries[chunk + 1],
+                                chunkFirstId, chunkStores[chunk], chunkInferenceTime);
+                        chunkInferenceTimes[chunk] = chunkInferenceTime[0];
+
+                        return parsed;
+                    }
+                }));
+
+                firstId += counts.get(c).get();
+            }
+
+            for (int c = 0; c < numChunks; ++c)
+            {
+                ArrayList<DataRecord> parsed = chunks.get(c).get();
+                int firstRow = store.append(chunkStores[c]);
+                chunkStores[c] = null;
+
+                for (int i = 0; i < parsed.size(); ++i)
+                {
+                    parsed.get(i).moveToStore(store, firstRow + i);
+                }
+
+                records.addAll(parsed);
+            }
+            recordNum = firstId;
+
+            // chunks are parsed concurrently, so only the slowest chunk's inference time adds to the elapsed time
+            long maxChunkInferenceTime = 0;
+            for (int c = 0; c < numChunks; ++c)
+            {
+                maxChunkInferenceTime = Math.max(maxChunkInferenceTime, chunkInferenceTimes[c]);
+            }
+            inferenceTime += maxChunkInferenceTime;
+
+            completeParse();
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace();
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+
+    /*
+     * Returns the number of lines in the given range of _file
+     */
+    private static int countLines(String _file, long _start, long _end) throws IOException
+    {
+        MappedTsvReader reader = new MappedTsvReader(_file, Charset.defaultCharset(), _start, _end);
+        int count = 0;
+
+        while (reader.nextLine())
+        {
+            ++count;
+        }
+
+        reader.close();
+
+        return count;
+    }
+
+    /*
+     * Parses the lines in the given range of _file into records held by _chunkStore, assigning record IDs
+     * consecutively from _firstId
+     */
+    private ArrayList<DataRecord> parseChunk(String _file, long _start, long _end, int _firstId,
+            ColumnStore _chunkStore, long[] _inferenceTime) throws IOException
+    {
+        ArrayList<DataRecord> parsed = new ArrayList<DataRecord>();
+        MappedTsvReader reader = new MappedTsvReader(_file, Charset.defaultCharset(), _start, _end);
+        int[] codes = new int[headers.size()];
+        int id = _firstId;
+        TimestampConverter[] chunkConverters = parsePlan.createConverters(_chunkStore);
+
+        while (reader.nextLine())
+        {
+            codes = growIfNeeded(codes, reader.getNumFields());
+            int row = readRow(reader, _chunkStore, codes);
+
+            parsed.add(parseRow(id++, _chunkStore, row, chunkConverters, _inferenceTime));
+        }
+
+        reader.close();
+
+        return parsed;
+    }
+
+    /*
+     * Encodes the fields of the reader's current line into the dictionaries of _store and adds them as a new row.
+     * _codes is scratch space and must hold at least as many elements as the line has fields.
+     */
+    private static int readRow(MappedTsvReader _reader, ColumnStore _store, int[] _codes)
+    {
+        int numFields = _reader.getNumFields();
+
+        for (int i = 0; i < numFields; ++i)
+        {
+            _codes[i] = _reader.getFieldCode(i, _store.getDictionary(i));
+        }
+
+        return _store.addRow(_codes, numFields);
+    }
+
+    /*
+     * Returns _codes if it holds at least _length elements, or a larger copy otherwise
+     */
+    private static int[] growIfNeeded(int[] _codes, int _length)
+    {
+        if (_codes.length < _length)
+        {
+            return Arrays.copyOf(_codes, Math.max(_length, _codes.length * 2));
+        }
+
+        return _codes;
+    }
+
+    /*
+     * Stores the header row and, now that the header values are known, infers the logical attributes
+     */
+    private void parseHeader(String _line)
+    {
+        rawHeaders = new String(_line);
+
+        String[] columns = _line.split("\t");
+
+        for (int i = 0; i < columns.length; ++i)
+        {
+            headers.add(columns[i]);
+        }
+
+        logicalAttributeInference();
+        parsePlan = new ParsePlan(headers, logicalAttributeStartIndices, logicalAttributeLength);
+        converters = parsePlan.createConverters(store);
+
+        readHeader = true;
+    }
+
+    /*
+     * Once every record has been read, infers the key and record type, applies them to all records and groups the
+     * records by key value(s)
+     */
+    private void completeParse()
+    {
+        // gather the column statistics both inferences draw on, scanning the columns concurrently
+        long start = System.currentTimeMillis();
+        statisticsCatalog = StatisticsCatalog.build(store, numThreads);
+        long end = System.currentTimeMillis();
+        inferenceTime += (end - start);
+
+        // determine the key attribute(s)
+        key = keyInference();
+
+        // determine the attribute that defines the record type (temporal grouping value) and apply it to all
+        // records
+        recordTypeIndex = recordTypeInference();
+
+        for (int i = 0; i < records.size(); ++i)
+        {
+            records.get(i).applyKey(key);
+            applyRecordType(records.get(i));
+        }
+
+        // now that every record knows its key values, group the records that share them
+        start = System.currentTimeMillis();
+        keyValueIndex = new KeyValueIndex(records, key);
+        end = System.currentTimeMillis();
+        inferenceTime += (end - start);
+    }
+
+    /*
+     * Applies the inferred record type (temporal grouping value) to the given record
+     */
+    private void applyRecordType(DataRecord _record)
+    {
+        if (key.getLength() == 1)
+        {
+            _record.applyGlobalRecordType();
+        }
+        else
+        {
+            _record.applyRecordType(recordTypeIndex);
+        }
+    }
+
+    /**
+     * Writes the parsed dataset to a binary snapshot (see SnapshotFormat) that loadSnapshot can restore without
+     * parsing the raw file or repeating any of the up-front inferences. The snapshot holds the name of the dataset (see
+     * setDatasetName), the headers, the logical attribute layout, the inferred key and record type attribute, the raw
+     * attribute values (as a ColumnStore) and the aggregate fields of every record. Must only be called once parsing
+     * has completed and before any deduplication technique has been applied.
+     * 
+     * @param _file snapshot file to write
+     * @throws IOException
+     */
+    public void saveSnapshot(String _file) throws IOException
+    {
+        DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(_file), SNAPSHOT_BUFFER_SIZE));
+
+        try
+        {
+            SnapshotFormat.writeHeader(out);
+            SnapshotFormat.writeString(out, datasetName);
+            SnapshotFormat.writeString(out, rawHeaders);
+
+            out.writeInt(headers.size());
+            for (int i = 0; i < headers.size(); ++i)
+            {
+                SnapshotFormat.writeString(out, headers.get(i));
+            }
+
+            out.writeInt(logicalAttributeLength);
+            out.writeInt(logicalAttributeStartIndices.size());
+            for (int i = 0; i < logicalAttributeStartIndices.size(); ++i)
+            {
+                out.writeInt(logicalAttributeStartIndices.get(i));
+            }
+
+            key.writeTo(out);
+            out.writeInt(recordTypeIndex);
+
+            store.writeTo(out);
+
+            out.writeInt(records.size());
+            for (int i = 0; i < records.size(); ++i)
+            {
+                records.get(i).writeTo(out);
+            }
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    /**
+     * Alternative to parseFile that restores a dataset written by saveSnapshot. No inference is repeated, so the
+     * inference time of a restored dataset is only the time taken to regroup the records by key value(s).
+     * 
+     * @param _file snapshot file to read
+     * @throws IOException if the file can not be read or is not a snapshot written by this version
+     */
+    public void loadSnapshot(String _file) throws IOException
+    {
+        DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(_file), SNAPSHOT_BUFFER_SIZE));
+
+        try
+        {
+            SnapshotFormat.readHeader(in);
+            datasetName = SnapshotFormat.readString(in);
+            rawHeaders = SnapshotFormat.readString(in);
+
+            int numHeaders = in.readInt();
+            for (int i = 0; i < numHeaders; ++i)
+            {
+                headers.add(SnapshotFormat.readString(in));
+            }
+
+            logicalAttributeLength = in.readInt();
+            int numLogicalAttributes = in.readInt();
+            for (int i = 0; i < numLogicalAttributes; ++i)
+            {
+                logicalAttributeStartIndices.add(in.readInt());
+            }
+            readHeader = true;
+
+            key = KeyAttribute.readFrom(in);
+            recordTypeIndex = in.readInt();
+
+            store = ColumnStore.readFrom(in);
+
+            int numRecords = in.readInt();
+            records.ensureCapacity(numRecords);
+            for (int i = 0; i < numRecords; ++i)
+            {
+                DataRecord record = DataRecord.readFrom(in, store, key);
+                applyRecordType(record);
+                records.add(record);
+            }
+            recordNum = numRecords;
+        }
+        finally
+        {
+            in.close();
+        }
+
+        System.out.println("Primary Key Inference (from snapshot): " + key.toString());
+        System.out.println("Temporal Grouping Value Inference (from snapshot): " + headers.get(recordTypeIndex)
+                + " @ index " + recordTypeIndex);
+
+        long start = System.currentTimeMillis();
+        keyValueIndex = new KeyValueIndex(records, key);
+        long end = System.currentTimeMillis();
+        inferenceTime += (end - start);
+    }
+
     /*
      * As noted, a given record may be inclusive of repeating sets of consecutive attributes  identical in length and
      * form. We will infer these to be logical attributes (or objects). If these logical attributes include temporal
@@ -267,34 +793,64 @@ public class DataHandler
             }
         }
 
+        KeyAttribute candidateKey = null;
+        String note = "";
+
+        if (keyInferenceMode == KeyInferenceMode.SKETCH)
+        {
+            SketchedKeyInference inference = new SketchedKeyInference(store, statisticsCatalog, headers,
+                    eligibleAttributeIndices);
+            candidateKey = inference.infer();
+            note = "Key inference estimated " + inference.getNumPairsEstimated() + " attribute pairs and verified "
+                    + inference.getNumCandidatesVerified() + " candidates exactly";
+        }
+        else if (keyInferenceMode == KeyInferenceMode.SAMPLE)
+        {
+            SampledKeyInference inference = new SampledKeyInference(store, statisticsCatalog, headers,
+                    eligibleAttributeIndices, keySampleSize, keyCandidates);
+            candidateKey = inference.infer();
+            note = "Key inference sampled " + inference.getNumSampled() + " of " + records.size()
+                    + " records; key has " + inference.getKeySampleDistinctCount()
+                    + " distinct values in the sample and " + inference.getKeyDistinctCount() + " in the dataset";
+        }
+        else
+        {
+            candidateKey = exactKeyInference(eligibleAttributeIndices);
+        }
+
+        long end = System.currentTimeMillis();
+        inferenceTime += (end - start);
+
+        if (!note.equals(""))
+        {
+            System.out.println(note);
+        }
+
+        System.out.println("Primary Key Inference: " + candidateKey.toString());
+
+        return candidateKey;
+    }
+
+    /*
+     * Implements DEDUPLICATION-PK-INFERENCE over the given eligible attribute indices, drawing the distinct values of
+     * every attribute and attribute pair considered from the statistics catalog
+     */
+    private KeyAttribute exactKeyInference(ArrayList<Integer> _eligibleAttributeIndices)
+    {
         // use a LinkedHashMap to ensure the Iterator returns keys in the same order we put them in
         LinkedHashMap<KeyAttribute, Integer> numUniqueValuesByCandidateKey = new LinkedHashMap<KeyAttribute, Integer>();
         int numTotalRecords = records.size();
         int numUniqueValues = 0;
         boolean primaryKeyFound = false;
-
-        // we only care about the key in the uniqueValueTracker
-        HashMap<String, Integer> uniqueValueTracker = null;
-        DataRecord record = null;
         KeyAttribute candidateKey = null;
-        String value = "";
 
         // iterate through the single-attribute potential keys to determine the number of unique values
-        for (int i = 0; i < eligibleAttributeIndices.size() && !primaryKeyFound; ++i)
+        for (int i = 0; i < _eligibleAttributeIndices.size() && !primaryKeyFound; ++i)
         {
             numUniqueValues = 0;
-            int index = eligibleAttributeIndices.get(i);
+            int index = _eligibleAttributeIndices.get(i);
             candidateKey = new KeyAttribute(headers.get(index), index);
-            uniqueValueTracker = new HashMap<String, Integer>();
-
-            for (int j = 0; j < numTotalRecords; ++j)
-            {
-                record = records.get(j);
-                value = record.getAttributeValueAt(index);
-                uniqueValueTracker.put(value, j);
-            }
-
-            numUniqueValues = uniqueValueTracker.keySet().size();
+            numUniqueValues = statisticsCatalog.getColumnStatistics(index).getDistinctCount();
 
             if (numUniqueValues == numTotalRecords)
             {
@@ -307,24 +863,15 @@ public class DataHandler
         }
 
         // iterate through the double-attribute potential keys to determine the number of unique values
-        for (int i = 0; i < eligibleAttributeIndices.size() && !primaryKeyFound; ++i)
+        for (int i = 0; i < _eligibleAttributeIndices.size() && !primaryKeyFound; ++i)
         {
-            for (int j = i + 1; j < eligibleAttributeIndices.size() && !primaryKeyFound; ++j)
+            for (int j = i + 1; j < _eligibleAttributeIndices.size() && !primaryKeyFound; ++j)
             {
                 numUniqueValues = 0;
-                int index_i = eligibleAttributeIndices.get(i);
-                int index_j = eligibleAttributeIndices.get(j);
+                int index_i = _eligibleAttributeIndices.get(i);
+                int index_j = _eligibleAttributeIndices.get(j);
                 candidateKey = new KeyAttribute(headers.get(index_i), index_i, headers.get(index_j), index_j);
-                uniqueValueTracker = new HashMap<String, Integer>();
-
-                for (int x = 0; x < numTotalRecords; ++x)
-                {
-                    record = records.get(x);
-                    value = record.getAttributeValueAt(index_i) + " :: " + record.getAttributeValueAt(index_j);
-                    uniqueValueTracker.put(value, x);
-                }
-
-                numUniqueValues = uniqueValueTracker.keySet().size();
+                numUniqueValues = statisticsCatalog.getPairStatistics(index_i, index_j).getDistinctCount();
 
                 if (numUniqueValues == numTotalRecords)
                 {
@@ -352,11 +899,6 @@ public class DataHandler
             }
         }
 
-        long end = System.currentTimeMillis();
-        inferenceTime += (end - start);
-
-        System.out.println("Primary Key Inference: " + candidateKey.toString());
-
         return candidateKey;
     }
 
@@ -379,19 +921,12 @@ public class DataHandler
         {
             int primaryIndex = key.getPrimaryAttributeIndex();
             int secondaryIndex = key.getSecondaryAttributeIndex();
-            HashMap<String, Integer> distinctValuesForPrimaryAttribute = new HashMap<String, Integer>();
-            HashMap<String, Integer> distinctValuesForSecondaryAttribute = new HashMap<String, Integer>();
-
-            // determine how many distinct values there are for each of the key attributes
-            for (int i = 0; i < records.size(); ++i)
-            {
-                DataRecord record = records.get(i);
-                distinctValuesForPrimaryAttribute.put(record.getAttributeValueAt(primaryIndex), i);
-                distinctValuesForSecondaryAttribute.put(record.getAttributeValueAt(secondaryIndex), i);
-            }
+            // the key inference has already measured how many distinct values there are for each key attribute
+            int numDistinctPrimaryValues = statisticsCatalog.getColumnStatistics(primaryIndex).getDistinctCount();
+            int numDistinctSecondaryValues = statisticsCatalog.getColumnStatistics(secondaryIndex).getDistinctCount();
 
             // the record type is the key attribute that has fewer distinct values
-            if (distinctValuesForPrimaryAttribute.keySet().size() < distinctValuesForSecondaryAttribute.keySet().size())
+            if (numDistinctPrimaryValues < numDistinctSecondaryValues)
             {
                 // the primary attribute is the record type
                 recordTypeIndex = primaryIndex;
@@ -420,121 +955,241 @@ public class DataHandler
      */
     public DataRecord parseRecord(String _line)
     {
-        DataRecord record = new DataRecord(recordNum++);
         String[] fields = _line.split("\t");
-        int logicalAttributeCount = 0;
+        int row = store.addRow(fields, fields.length);
+
+        return parseRow(row);
+    }
+
+    /*
+     * Builds the next record over the given row of the store
+     */
+    private DataRecord parseRow(int _row)
+    {
+        long[] parseInferenceTime = new long[1];
+        DataRecord record = parseRow(recordNum++, store, _row, converters, parseInferenceTime);
+        inferenceTime += parseInferenceTime[0];
 
-        long startInference = 0;
+        return record;
+    }
+
+    /*
+     * Builds the record with the given ID over the given row of _store, converting its timestamps with _converters
+     * (created for _store by the parse plan) and adding the time spent on inference to _inferenceTime[0]. Otherwise
+     * only reads state established by the header row, so records over separate stores may be built concurrently.
+     */
+    private DataRecord parseRow(int _id, ColumnStore _store, int _row, TimestampConverter[] _converters,
+            long[] _inferenceTime)
+    {
+        DataRecord record = new DataRecord(_id, _store, _row);
+        int numFields = _store.getNumFields(_row);
+        int length = parsePlan.getLogicalAttributeLength();
+
+        long startInference = System.currentTimeMillis();
         long endInference = 0;
 
-        for (int i = 0; i < fields.length; ++i)
+        // only the logical attributes that start within the record's fields are built
+        for (int l = 0; l < parsePlan.getNumLogicalAttributes(); ++l)
         {
-            // add the raw field value to the data record
-            record.addAttributeValue(fields[i]);
+            int i = parsePlan.getLogicalAttributeStart(l);
+            if (i >= numFields)
+            {
+                break;
+            }
 
-            startInference = System.currentTimeMillis();
+            LogicalAttribute la = new LogicalAttribute(l, i, length);
 
-            if (logicalAttributeStartIndices.contains(i))
+            // let's go ahead and populate the logical attribute by grabbing from future iterative values; values
+            // beyond the end of the record (blanks) convert to 0
+            for (int j = 0; j < length; ++j)
             {
-                LogicalAttribute la = new LogicalAttribute(logicalAttributeCount++);
+                TimestampConverter converter = _converters[i + j];
 
-                // let's go ahead and populate the logical attribute by grabbing from future iterative values
-                for (int j = 0; j < logicalAttributeLength; ++j)
+                if (converter != null)
                 {
-                    // must protect against the possibility that the end of the record has blanks
-                    String ts = "";
-                    if ((i + j) < fields.length)
-                    {
-                        ts = fields[i + j];
-                    }
-
-                    la.addAttributeValue(ts);
-
-                    if (StringUtils.containsIgnoreCase(headers.get(i + j), "timestamp"))
-                    {
-                        la.setTimestamp(ts, DataRecord.TimestampGranularity.EXACT, i + j);
-                    }
-                    else if (StringUtils.containsIgnoreCase(headers.get(i + j), "time"))
-                    {
-                        la.setTimestamp(ts, DataRecord.TimestampGranularity.TIME_OF_DAY, i + j);
-                    }
-                    else if (StringUtils.containsIgnoreCase(headers.get(i + j), "date"))
-                    {
-                        la.setTimestamp(ts, DataRecord.TimestampGranularity.DATE, i + j);
-                    }
+                    la.setTimestamp(converter.convert(_row), converter.getGranularity(), i + j);
                 }
-
-                // record expects logical attribute to have timestamp and timestamp granularity set
-                record.addLogicalAttribute(la);
             }
 
-            endInference = System.currentTimeMillis();
-            inferenceTime += (endInference - startInference);
+            // record expects logical attribute to have timestamp and timestamp granularity set
+            record.addLogicalAttribute(la);
         }
 
-        startInference = System.currentTimeMillis();
-
         /* let the record know that all data fields have been added so that it may determine its aggregate fields */
         record.readComplete();
 
         endInference = System.currentTimeMillis();
-        inferenceTime += (endInference - startInference);
+        _inferenceTime[0] += (endInference - startInference);
 
         return record;
     }
 
-    public void outputRawFieldsToFile(String _file, boolean _withIDs)
-            throws FileNotFoundException, UnsupportedEncodingException
+    /**
+     * Sets the name of the dataset being parsed, as its output files are to be named, so that a snapshot of it can
+     * restore the name along with the dataset.
+     * 
+     * @param _name name of the (uncompressed) dataset file
+     */
+    public void setDatasetName(String _name)
+    {
+        datasetName = _name;
+    }
+
+    /**
+     * Returns the name of the dataset, as given to setDatasetName or as restored from a snapshot.
+     * 
+     * @return name of the dataset
+     */
+    public String getDatasetName()
+    {
+        return datasetName;
+    }
+
+    /**
+     * Sets the directory the output files are written to; it is created if it does not exist. Defaults to "output".
+     * 
+     * @param _directory output directory
+     */
+    public void setOutputDirectory(String _directory)
+    {
+        outputDirectory = _directory;
+    }
+
+    /*
+     * Returns the path within the output directory of a file with the same name as _file (whose own directory, if any,
+     * is ignored), creating the output directory if need be
+     */
+    private String resolveOutputFile(String _file) throws IOException
+    {
+        String name = _file.substring(Math.max(_file.lastIndexOf('\\'), _file.lastIndexOf('/')) + 1);
+        Path directory = Paths.get(outputDirectory);
+        Files.createDirectories(directory);
+
+        return directory.resolve(name).toString();
+    }
+
+    /**
+     * Writes the raw attribute values of every record, in the source format, to the given file.
+     * 
+     * @param _file    output filename; written to the output directory
+     * @param _withIDs whether each row is prefixed by the record ID
+     * @return the name of the file written
+     * @throws IOException
+     */
+    public String outputRawFieldsToFile(String _file, boolean _withIDs) throws IOException
     {
-        _file = "output\\" + _file.substring(_file.lastIndexOf("\\") + 1);
+        _file = resolveOutputFile(_file);
 
-        PrintWriter writer = new PrintWriter(_file);
+        RowWriter writer = new RowWriter(_file);
 
-        String headerRow = rawHeaders;
-        String valuesRow = "";
-        DataRecord record = null;
+        try
+        {
+            StringBuilder row = writer.startRow();
+            if (_withIDs)
+            {
+                row.append("ID\t");
+            }
+            row.append(rawHeaders);
+            writer.endRow();
 
-        if (_withIDs)
+            for (int i = 0; i < records.size(); ++i)
+            {
+                row = writer.startRow();
+                if (_withIDs)
+                {
+                    row.append(i).append('\t');
+                }
+                records.get(i).appendTabDelimRawFields(row);
+                writer.endRow();
+            }
+        }
+        finally
         {
-            headerRow = "ID\t" + headerRow;
+            writer.close();
         }
 
-        writer.println(headerRow);
+        return _file;
+    }
+
+    /**
+     * Writes the analysis fields (see DataRecord.toTabDelimAnalysisFields) of every record to the given file, including
+     * the ID and size of the duplicate cluster the record belongs to.
+     * 
+     * @param _file     output filename; written to the output directory
+     * @param _clusters duplicate clusters determined over the records
+     * @return the name of the file written
+     * @throws IOException
+     */
+    public String outputAnalysisFieldsToFile(String _file, DuplicateClusters _clusters) throws IOException
+    {
+        _file = resolveOutputFile(_file);
 
-        for (int i = 0; i < records.size(); ++i)
+        RowWriter writer = new RowWriter(_file);
+
+        try
         {
-            record = records.get(i);
-            valuesRow = record.toTabDelimRawFields();
+            writer.writeRow(DataRecord.getAnalysisHeaderRow(rawHeaders));
 
-            if (_withIDs)
+            for (int i = 0; i < records.size(); ++i)
             {
-                valuesRow = i + "\t" + valuesRow;
+                records.get(i).appendTabDelimAnalysisFields(writer.startRow(), _clusters);
+                writer.endRow();
             }
-
-            writer.println(valuesRow);
+        }
+        finally
+        {
+            writer.close();
         }
 
-        writer.close();
+        return _file;
     }
 
-    public String outputAnalysisFieldsToFile(String _file) throws FileNotFoundException, UnsupportedEncodingException
+    /**
+     * Writes one row per duplicate cluster (a set of records connected by matches) to the given file. Each row holds
+     * the cluster ID (the record ID of the cluster's representative, its lowest record ID), the cluster size, and the
+     * space-separated member record IDs.
+     * 
+     * @param _file     output filename; written to the output directory
+     * @param _clusters duplicate clusters determined over the records
+     * @return the name of the file written
+     * @throws IOException
+     */
+    public String outputClustersToFile(String _file, DuplicateClusters _clusters) throws IOException
     {
-        _file = "output\\" + _file.substring(_file.lastIndexOf("\\") + 1);
+        _file = resolveOutputFile(_file);
 
-        PrintWriter writer = new PrintWriter(_file);
+        RowWriter writer = new RowWriter(_file);
 
-        writer.println(DataRecord.getAnalysisHeaderRow(rawHeaders));
+        try
+        {
+            writer.writeRow("Cluster ID\tCluster Size\tMember IDs");
 
-        DataRecord record = null;
+            ArrayList<ArrayList<Integer>> clusters = _clusters.getDuplicateClusters();
 
-        for (int i = 0; i < records.size(); ++i)
+            for (int i = 0; i < clusters.size(); ++i)
+            {
+                ArrayList<Integer> members = clusters.get(i);
+                StringBuilder row = writer.startRow();
+                row.append(_clusters.getClusterId(members.get(0))).append('\t').append(members.size()).append('\t');
+
+                for (int j = 0; j < members.size(); ++j)
+                {
+                    if (j > 0)
+                    {
+                        row.append(' ');
+                    }
+
+                    row.append(members.get(j).intValue());
+                }
+
+                writer.endRow();
+            }
+        }
+        finally
         {
-            record = records.get(i);
-            writer.println(record.toTabDelimAnalysisFields());
+            writer.close();
         }
 
-        writer.close();
-
         return _file;
     }
 }
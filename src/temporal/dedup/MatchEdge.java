@@ -0,0 +1,57 @@
+package temporal.dedup;
+
+/**
+ * A duplicate match found between two records, identified by record ID, along with the duplicate class (see
+ * DuplicationClasses) it was detected by. Matches found concurrently are collected as edges and sorted so that they
+ * may be applied to the records in the same order the sequential techniques would have applied them.
+ */
+public class MatchEdge implements Comparable<MatchEdge>
+{
+    private int review;
+    private int potential;
+    private String duplicationClass;
+
+    /**
+     * @param _review           ID of the record under review (the lower of the two IDs)
+     * @param _potential        ID of the record it was matched with (the higher of the two IDs)
+     * @param _duplicationClass duplicate class the match was detected by
+     */
+    public MatchEdge(int _review, int _potential, String _duplicationClass)
+    {
+        review = _review;
+        potential = _potential;
+        duplicationClass = _duplicationClass;
+    }
+
+    public int getReview()
+    {
+        return review;
+    }
+
+    public int getPotential()
+    {
+        return potential;
+    }
+
+    public String getDuplicationClass()
+    {
+        return duplicationClass;
+    }
+
+    /**
+     * Orders edges by review ID and then by potential ID, which is the order in which the pairwise techniques visit
+     * record pairs.
+     */
+    @Override
+    public int compareTo(MatchEdge _other)
+    {
+        int value = Integer.compare(review, _other.review);
+
+        if (value == 0)
+        {
+            value = Integer.compare(potential, _other.potential);
+        }
+
+        return value;
+    }
+}
@@ -1,18 +1,33 @@
 package temporal.dedup;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import temporal.dedup.comparison.ASNM;
+import temporal.dedup.index.ElapsedTimeIndex;
+import temporal.dedup.index.ExactMatchIndex;
+import temporal.dedup.index.KeyValueIndex;
+import temporal.dedup.index.NonKeyMatchIndex;
+import temporal.dedup.index.UnconstrainedOrderIndex;
+import temporal.dedup.io.InputSources;
 import temporal.dedup.records.DataRecord;
 import temporal.dedup.records.RecordTypeSequence;
 import temporal.dedup.utils.ConfusionMatrix;
+import temporal.dedup.utils.DuplicateClusters;
+import temporal.dedup.utils.DuplicateRegistry;
 import temporal.dedup.utils.LCS;
 import temporal.dedup.utils.StringUtils;
 
@@ -29,7 +44,8 @@ import temporal.dedup.utils.StringUtils;
  * 
  * Requirements/assumptions in current revision (robustness updates planned for future):
  * 
- * (a) Requires command line specification of a dataset file and a truth data file
+ * (a) Requires command line specification of a dataset file (or of a snapshot to load with -load_snapshot) and a truth
+ * data file
  * 
  * (b) Assumes dataset file has a header row and is tab-delimited with no unique record IDs; will internally assign
  * record IDs when parsing
@@ -46,15 +62,22 @@ import temporal.dedup.utils.StringUtils;
  * (f) The default settings for model parameters is LCS max-sampling with an unconstrained order minimum sequence length
  * of 8.
  * 
- * (g) Output files requested by the -a and/or -o flags on the command line will be written to ./output/ folder.
+ * (g) Output files requested by the -a, -o and/or -g flags on the command line will be written to ./output/ folder (or
+ * the folder given by -output_dir).
  */
 public class TemporalDedup
 {
     private DataHandler dataIO;
     private ConfusionMatrix cm;
-    private ArrayList<Integer> predictedDupIDs;
-    private ArrayList<Integer> unconstrainedOrderDuplicates;
+    private DuplicateRegistry predictedDupIDs;
+    private DuplicateRegistry unconstrainedOrderDuplicates;
+    private DuplicateClusters clusters;
     private ArrayList<DataRecord> records;
+    private ExactMatchIndex exactMatchIndex;
+    private NonKeyMatchIndex nonKeyMatchIndex;
+    private KeyValueIndex keyValueIndex;
+    private ElapsedTimeIndex elapsedTimeIndex;
+    private UnconstrainedOrderIndex unconstrainedOrderIndex;
     private int numRecordsNotAdheredToLcs = 0;
 
     /*
@@ -70,6 +93,7 @@ public class TemporalDedup
     public static int LCS_SAMPLING__NUMBER_OF_RECORDS = MAX_SAMPLING;
     public static int LCS_SAMPLING__SELECTION_TYPE_TAKE_EVERY_X = 1;
     public static boolean LCS_SAMPLING__SELECTION_TYPE_RANDOM = false;
+    public static boolean LCS_REDUCTION__TREE = false;
     public static int UNCONSTRAINED_ORDER__MINIMUM_SEQUENCE_LENGTH = 8;
 
     /*
@@ -101,6 +125,78 @@ public class TemporalDedup
      */
     private static boolean OUTPUT_ANALYSIS_FILE = false;
 
+    /*
+     * Option that may be set by command line to generate a cluster output file that lists each cluster of records
+     * connected by matches, along with the cluster's representative record.
+     */
+    private static boolean OUTPUT_CLUSTER_FILE = false;
+
+    /*
+     * Option that may be set by command line to apply the base set of deduplication techniques in parallel, with the
+     * records partitioned by record type.
+     */
+    private static boolean PARALLEL_BASE_TECHNIQUES = false;
+
+    /*
+     * Option that may be set by command line to determine the LCS of each record type in parallel, one task per record
+     * type.
+     */
+    private static boolean PARALLEL_LCS = false;
+
+    /*
+     * Option that may be set by command line to report, for each record type whose LCS is reduced as a tree, how the
+     * tree's LCS compares with the chained fold's.
+     */
+    private static boolean LCS_DIAGNOSTICS = false;
+
+    /*
+     * Option that may be set by command line to specify the number of threads used by the parallel execution options.
+     * Defaults to the number of available processors.
+     */
+    private static int NUMBER_OF_THREADS = Runtime.getRuntime().availableProcessors();
+
+    /*
+     * Option that may be set by command line to read the dataset file through a memory-mapped window rather than a
+     * character stream.
+     */
+    private static boolean MAPPED_INPUT = false;
+
+    /*
+     * Option that may be set by command line to parse the dataset file in parallel, divided into newline-aligned
+     * chunks. Implies reading the dataset file through a memory-mapped window.
+     */
+    private static boolean PARALLEL_PARSE = false;
+
+    /*
+     * Option that may be set by command line to write the parsed dataset, inclusive of the up-front inferences, to a
+     * binary snapshot file once parsing has completed.
+     */
+    private static String SAVE_SNAPSHOT_FILE = "";
+
+    /*
+     * Option that may be set by command line to restore the dataset from a binary snapshot file written by a previous
+     * run rather than parsing the dataset file.
+     */
+    private static String LOAD_SNAPSHOT_FILE = "";
+
+    /*
+     * Option that may be set by command line to specify the directory the output files are written to.
+     */
+    private static String OUTPUT_DIRECTORY = "output";
+
+    /*
+     * Option that may be set by command line to specify how the key attribute(s) are inferred: exactly, or by
+     * estimating the distinct values of attribute pairs and verifying only the top candidates.
+     */
+    private static DataHandler.KeyInferenceMode KEY_INFERENCE_MODE = DataHandler.KeyInferenceMode.EXACT;
+
+    /*
+     * Options that may be set by command line to specify, for sampled key inference, the number of records sampled and
+     * the number of top-ranked candidate keys counted across every record.
+     */
+    private static int KEY_SAMPLE_SIZE = DataHandler.DEFAULT_KEY_SAMPLE_SIZE;
+    private static int KEY_CANDIDATES = DataHandler.DEFAULT_KEY_CANDIDATES;
+
     public static void main(String[] _args)
     {
         System.out.println("*** BEGIN TemporalDedup APPLICATION ***");
@@ -145,6 +241,14 @@ public class TemporalDedup
             {
                 LCS_SAMPLING__SELECTION_TYPE_RANDOM = true;
             }
+            else if (arg.trim().equalsIgnoreCase("-lcs_tree"))
+            {
+                LCS_REDUCTION__TREE = true;
+            }
+            else if (arg.trim().equalsIgnoreCase("-lcs_diagnostics"))
+            {
+                LCS_DIAGNOSTICS = true;
+            }
             else if (arg.trim().equalsIgnoreCase("-lcs_every_x"))
             {
                 // the following argument should specify the skip rate (X)
@@ -218,6 +322,93 @@ public class TemporalDedup
             {
                 OUTPUT_ANALYSIS_FILE = true;
             }
+            else if (arg.trim().equalsIgnoreCase("-g"))
+            {
+                OUTPUT_CLUSTER_FILE = true;
+            }
+            else if (arg.trim().equalsIgnoreCase("-parallel_base"))
+            {
+                PARALLEL_BASE_TECHNIQUES = true;
+            }
+            else if (arg.trim().equalsIgnoreCase("-parallel_lcs"))
+            {
+                PARALLEL_LCS = true;
+            }
+            else if (arg.trim().equalsIgnoreCase("-threads"))
+            {
+                // the following argument should specify the number of threads
+                int threads = Integer.parseInt(args.get(i + 1).trim());
+                ++i;
+
+                NUMBER_OF_THREADS = Math.max(1, threads);
+            }
+            else if (arg.trim().equalsIgnoreCase("-mapped_input"))
+            {
+                MAPPED_INPUT = true;
+            }
+            else if (arg.trim().equalsIgnoreCase("-parallel_parse"))
+            {
+                PARALLEL_PARSE = true;
+            }
+            else if (arg.trim().equalsIgnoreCase("-save_snapshot"))
+            {
+                // the following argument should specify the snapshot file to write
+                SAVE_SNAPSHOT_FILE = args.get(i + 1).trim();
+                ++i;
+            }
+            else if (arg.trim().equalsIgnoreCase("-load_snapshot"))
+            {
+                // the following argument should specify the snapshot file to read
+                LOAD_SNAPSHOT_FILE = args.get(i + 1).trim();
+                ++i;
+            }
+            else if (arg.trim().equalsIgnoreCase("-output_dir"))
+            {
+                // the following argument should specify the output directory
+                OUTPUT_DIRECTORY = args.get(i + 1).trim();
+                ++i;
+            }
+            else if (arg.trim().equalsIgnoreCase("-key_inference"))
+            {
+                // the following argument should specify the key inference mode
+                String mode = args.get(i + 1).trim();
+                ++i;
+
+                try
+                {
+                    KEY_INFERENCE_MODE = DataHandler.KeyInferenceMode.valueOf(mode.toUpperCase());
+                }
+                catch (IllegalArgumentException e)
+                {
+                    System.err.println("Unrecognized key inference mode: " + mode + "; ignoring");
+                }
+            }
+            else if (arg.trim().equalsIgnoreCase("-key_sample_size"))
+            {
+                // the following argument should specify the number of records sampled
+                KEY_SAMPLE_SIZE = Math.max(1, Integer.parseInt(args.get(i + 1).trim()));
+                ++i;
+            }
+            else if (arg.trim().equalsIgnoreCase("-key_candidates"))
+            {
+                // the following argument should specify the number of candidate keys counted exactly
+                KEY_CANDIDATES = Math.max(1, Integer.parseInt(args.get(i + 1).trim()));
+                ++i;
+            }
+        }
+
+        // the diagnostics compare the tree reduction with the chained fold, so there is nothing to report without it
+        if (LCS_DIAGNOSTICS && !LCS_REDUCTION__TREE)
+        {
+            System.out.println("WARN: -lcs_diagnostics is ignored without -lcs_tree");
+        }
+
+        // a restored dataset does not need the dataset file; the output files are named after the dataset the snapshot
+        // was written from, unless a dataset file is given
+        boolean namedBySnapshot = datasetFile.equals("") && !LOAD_SNAPSHOT_FILE.equals("");
+        if (namedBySnapshot)
+        {
+            datasetFile = LOAD_SNAPSHOT_FILE;
         }
 
         if (datasetFile.equals("") || truthFile.equals(""))
@@ -227,57 +418,89 @@ public class TemporalDedup
         }
 
         TemporalDedup td = new TemporalDedup(datasetFile, truthFile);
+        td.dataIO.setOutputDirectory(OUTPUT_DIRECTORY);
 
-        if (RUN_COMPARISON_TECHNIQUE)
-        {
-            ASNM comparison = new ASNM(blockingKey, thresholds);
-            comparison.executeComparsion(td.cm, td.dataIO.getHeaders(), td.records);
-        }
-
-        String outputFile = "";
-        long start = 0;
-        long end = 0;
+        /*
+         * The output files only read the records, so they are written on a background pool while the comparison
+         * method runs. Their messages are printed once every file has been written, in the order the files are listed.
+         */
+        final DataHandler dataIO = td.dataIO;
+        final DuplicateClusters clusters = td.clusters;
+        final String dataset = namedBySnapshot ? dataIO.getDatasetName()
+                : InputSources.getUncompressedName(datasetFile);
+        ForkJoinPool outputPool = new ForkJoinPool(NUMBER_OF_THREADS);
+        ArrayList<ForkJoinTask<String>> outputTasks = new ArrayList<ForkJoinTask<String>>();
 
         if (OUTPUT_SOURCE_DATA_FILES)
         {
-            try
+            outputTasks.add(outputPool.submit(new OutputTask("raw data records")
             {
-                start = System.currentTimeMillis();
-                outputFile = StringUtils.replaceLast(datasetFile, ".", "_raw_output.");
-                td.dataIO.outputRawFieldsToFile(outputFile, false);
-                end = System.currentTimeMillis();
-                System.out.println("Raw data records written to file: " + outputFile);
-                System.out.println("Writing raw data records to file takes " + (end - start) + "ms");
+                @Override
+                protected String write() throws IOException
+                {
+                    return dataIO.outputRawFieldsToFile(StringUtils.replaceLast(dataset, ".", "_raw_output."), false);
+                }
+            }));
 
-                start = System.currentTimeMillis();
-                outputFile = StringUtils.replaceLast(datasetFile, ".", "_raw_with_rowids_output.");
-                td.dataIO.outputRawFieldsToFile(outputFile, true);
-                end = System.currentTimeMillis();
-                System.out.println("Raw data records with row IDs written to file: " + outputFile);
-                System.out.println("Writing raw data records with row IDs to file takes " + (end - start) + "ms");
-            }
-            catch (Exception e)
+            outputTasks.add(outputPool.submit(new OutputTask("raw data records with row IDs")
             {
-                e.printStackTrace();
-            }
+                @Override
+                protected String write() throws IOException
+                {
+                    return dataIO.outputRawFieldsToFile(
+                            StringUtils.replaceLast(dataset, ".", "_raw_with_rowids_output."), true);
+                }
+            }));
         }
 
         if (OUTPUT_ANALYSIS_FILE)
+        {
+            outputTasks.add(outputPool.submit(new OutputTask("analysis data records")
+            {
+                @Override
+                protected String write() throws IOException
+                {
+                    return dataIO.outputAnalysisFieldsToFile(StringUtils.replaceLast(dataset, ".", "_analysis_output."),
+                            clusters);
+                }
+            }));
+        }
+
+        if (OUTPUT_CLUSTER_FILE)
+        {
+            outputTasks.add(outputPool.submit(new OutputTask("duplicate clusters")
+            {
+                @Override
+                protected String write() throws IOException
+                {
+                    return dataIO.outputClustersToFile(StringUtils.replaceLast(dataset, ".", "_clusters_output."),
+                            clusters);
+                }
+            }));
+        }
+
+        if (RUN_COMPARISON_TECHNIQUE)
+        {
+            ASNM comparison = new ASNM(blockingKey, thresholds);
+            comparison.executeComparsion(td.cm, td.dataIO.getHeaders(), td.records);
+        }
+
+        for (int t = 0; t < outputTasks.size(); ++t)
         {
             try
             {
-                start = System.currentTimeMillis();
-                outputFile = StringUtils.replaceLast(datasetFile, ".", "_analysis_output.");
-                outputFile = td.dataIO.outputAnalysisFieldsToFile(outputFile);
-                end = System.currentTimeMillis();
-                System.out.println("Analysis data records written to file: " + outputFile);
-                System.out.println("Writing analysis data records to file takes " + (end - start) + "ms");
+                System.out.print(outputTasks.get(t).get());
             }
-            catch (Exception e)
+            catch (ExecutionException e)
+            {
+                e.getCause().printStackTrace();
+            }
+            catch (InterruptedException e)
             {
                 e.printStackTrace();
             }
         }
+        outputPool.shutdown();
 
         if (RUN_USER_QUERIES)
         {
@@ -290,12 +513,18 @@ public class TemporalDedup
     private static void usage()
     {
         System.out.println(
-                "Usage: -d dataset_filename -t truth_data_filename [-c blocking_key] [-s list_of_thresholds] [-q] [-o] [-a]\n"
-                        + "   [-lcs_max] [-lcs_samples number_of_samples] [-lcs_random] [-lcs_every_x skip_rate] [min_seq_length length]");
+                "Usage: -d dataset_filename -t truth_data_filename [-c blocking_key] [-s list_of_thresholds] [-q] [-o] [-a] [-g]\n"
+                        + "   [-lcs_max] [-lcs_samples number_of_samples] [-lcs_random] [-lcs_every_x skip_rate] [min_seq_length length]\n"
+                        + "   [-lcs_tree] [-lcs_diagnostics] [-parallel_base] [-parallel_lcs] [-threads number_of_threads] [-mapped_input]\n"
+                        + "   [-parallel_parse] [-save_snapshot snapshot_filename] [-load_snapshot snapshot_filename]\n"
+                        + "   [-output_dir directory] [-key_inference exact|sketch|sample]\n"
+                        + "   [-key_sample_size number_of_records] [-key_candidates number_of_candidates]");
         System.out.println(
                 "  dataset_filename should specify the complete or relative path and the complete filename including extension");
         System.out.println(
                 "  truth_data_filename should specify the complete or relative path and the complete filename including extension");
+        System.out.println(
+                "  either file may be gzip-compressed (filename ending in .gz) or an entry of a zip archive (archive.zip!entry_name)");
         System.out.println("  -c with a provided blocking_key will invoke execution/results of comparison method(s)");
         System.out.println(
                 "  -s provide the list of similarity thresholds (e.g. .981, .927) to be used by the comparison method");
@@ -305,6 +534,8 @@ public class TemporalDedup
                 "  -o will output the dataset into the source format (which should match the input file) and a version with row IDs");
         System.out.println(
                 "  -a will output an analysis file with each record prefixed by fields that may aid in analysis");
+        System.out.println(
+                "  -g will output a cluster file listing each cluster of duplicate records and its representative record");
 
         /*
          * For specification of model parameters
@@ -315,16 +546,86 @@ public class TemporalDedup
         System.out.println("  -lcs_random Sets the model parameter LCS_SAMPLING__SELECTION_TYPE_RANDOM to true");
         System.out.println(
                 "  -lcs_every_x Sets the model parameter LCS_SAMPLING__SELECTION_TYPE_TAKE_EVERY_X to the number specified");
+        System.out.println("  -lcs_tree Sets the model parameter LCS_REDUCTION__TREE to true");
+        System.out.println(
+                "  -lcs_diagnostics will report how each record type's tree-reduced LCS compares with the chained fold's");
         System.out.println(
                 "  -min_seq_length Sets the model parameter UNCONSTRAINED_ORDER__MINIMUM_SEQUENCE_LENGTH to the length specified");
 
+        /*
+         * For specification of execution options
+         */
+        System.out.println(
+                "  -parallel_base will apply the base set of deduplication techniques in parallel, partitioned by record type");
+        System.out.println("  -parallel_lcs will determine the LCS of each record type in parallel, one record type per task");
+        System.out.println(
+                "  -threads Sets the number of threads used by parallel execution options (defaults to available processors)");
+        System.out.println(
+                "  -mapped_input will read the dataset file through a memory-mapped window rather than a character stream");
+        System.out.println(
+                "  -parallel_parse will parse the dataset file in parallel, divided into chunks (implies -mapped_input)");
+        System.out.println(
+                "  -save_snapshot will write the parsed dataset and its inferences to the specified binary snapshot file");
+        System.out.println(
+                "  -load_snapshot will restore the dataset from the specified snapshot file instead of parsing the dataset file\n"
+                        + "   (dataset_filename is then optional and only names the output files)");
+        System.out.println(
+                "  -output_dir Sets the directory the output files are written to (defaults to output); output files are\n"
+                        + "   written on a background thread while the comparison method runs");
+        System.out.println(
+                "  -key_inference Sets how the key is inferred: exact (default) counts the distinct values of every attribute\n"
+                        + "   and attribute pair; sketch estimates those of attribute pairs and verifies only the top candidates;\n"
+                        + "   sample ranks candidates on a sample of the records and counts only the top candidates exactly");
+        System.out.println(
+                "  -key_sample_size Sets the number of records sampled by sampled key inference (defaults to "
+                        + DataHandler.DEFAULT_KEY_SAMPLE_SIZE + ")");
+        System.out.println(
+                "  -key_candidates Sets the number of candidates sampled key inference counts exactly (defaults to "
+                        + DataHandler.DEFAULT_KEY_CANDIDATES + ")");
+
         System.exit(0);
     }
 
+    /*
+     * Writes a single output file, timing the write and returning the messages that describe it so that the messages
+     * of files written concurrently may be printed in a deterministic order
+     */
+    private static abstract class OutputTask implements Callable<String>
+    {
+        private String description;
+
+        /*
+         * _description describes the file's contents in lower case, e.g. "raw data records"
+         */
+        OutputTask(String _description)
+        {
+            description = _description;
+        }
+
+        /*
+         * Writes the file, returning the name of the file written
+         */
+        protected abstract String write() throws IOException;
+
+        @Override
+        public String call() throws IOException
+        {
+            long start = System.currentTimeMillis();
+            String file = write();
+            long end = System.currentTimeMillis();
+
+            String separator = System.lineSeparator();
+
+            return Character.toUpperCase(description.charAt(0)) + description.substring(1) + " written to file: "
+                    + file + separator + "Writing " + description + " to file takes " + (end - start) + "ms"
+                    + separator;
+        }
+    }
+
     TemporalDedup(String _dataset, String _truth)
     {
-        predictedDupIDs = new ArrayList<Integer>();
-        unconstrainedOrderDuplicates = new ArrayList<Integer>();
+        predictedDupIDs = new DuplicateRegistry();
+        unconstrainedOrderDuplicates = new DuplicateRegistry();
 
         try
         {
@@ -349,19 +650,52 @@ public class TemporalDedup
             System.out.println("  LCS_SAMPLING__SELECTION_TYPE_RANDOM: " + LCS_SAMPLING__SELECTION_TYPE_RANDOM);
             System.out.println(
                     "  LCS_SAMPLING__SELECTION_TYPE_TAKE_EVERY_X: " + LCS_SAMPLING__SELECTION_TYPE_TAKE_EVERY_X);
+            System.out.println("  LCS_REDUCTION__TREE: " + LCS_REDUCTION__TREE);
             System.out.println(
                     "  UNCONSTRAINED_ORDER__MINIMUM_SEQUENCE_LENGTH: " + UNCONSTRAINED_ORDER__MINIMUM_SEQUENCE_LENGTH);
 
             /*
              * Step 1. Parse raw dataset file
              */
-            System.out.println("Dataset to process is described in: " + _dataset);
             long start = System.currentTimeMillis();
             dataIO = new DataHandler();
-            dataIO.parseFile(_dataset);
+            dataIO.setKeyInferenceMode(KEY_INFERENCE_MODE);
+            dataIO.setKeySampling(KEY_SAMPLE_SIZE, KEY_CANDIDATES);
+            dataIO.setNumThreads(NUMBER_OF_THREADS);
+            if (!LOAD_SNAPSHOT_FILE.equals(""))
+            {
+                System.out.println("Dataset to process is restored from snapshot: " + LOAD_SNAPSHOT_FILE);
+                dataIO.loadSnapshot(LOAD_SNAPSHOT_FILE);
+            }
+            else
+            {
+                System.out.println("Dataset to process is described in: " + _dataset);
+                dataIO.setDatasetName(InputSources.getUncompressedName(_dataset));
+
+                if ((PARALLEL_PARSE || MAPPED_INPUT) && InputSources.isCompressed(_dataset))
+                {
+                    // a compressed dataset can not be memory-mapped; stream it instead
+                    System.out.println("Compressed dataset will be streamed rather than memory-mapped");
+                    dataIO.parseFile(_dataset);
+                }
+                else if (PARALLEL_PARSE)
+                {
+                    dataIO.parseFileInParallel(_dataset, NUMBER_OF_THREADS);
+                }
+                else if (MAPPED_INPUT)
+                {
+                    dataIO.parseMappedFile(_dataset);
+                }
+                else
+                {
+                    dataIO.parseFile(_dataset);
+                }
+            }
             long end = System.currentTimeMillis();
             long algorithmTimeDuringParse = dataIO.getInferenceTime();
             records = dataIO.getRecords();
+            clusters = new DuplicateClusters(records.size());
+            keyValueIndex = dataIO.getKeyValueIndex();
             if (LCS_SAMPLING__NUMBER_OF_RECORDS == MAX_SAMPLING)
             {
                 LCS_SAMPLING__NUMBER_OF_RECORDS = records.size();
@@ -369,6 +703,15 @@ public class TemporalDedup
             System.out.println("Number of records parsed: " + records.size());
             System.out.println("Parsing raw data file takes " + (end - start) + "ms");
 
+            if (!SAVE_SNAPSHOT_FILE.equals(""))
+            {
+                start = System.currentTimeMillis();
+                dataIO.saveSnapshot(SAVE_SNAPSHOT_FILE);
+                end = System.currentTimeMillis();
+                System.out.println("Dataset snapshot written to file: " + SAVE_SNAPSHOT_FILE);
+                System.out.println("Writing dataset snapshot takes " + (end - start) + "ms");
+            }
+
             /*
              * Step 2. Parse truth data file
              */
@@ -390,9 +733,19 @@ public class TemporalDedup
              * Step 3. Apply base set of deduplication techniques
              */
             start = System.currentTimeMillis();
-            for (int x = 0; x < records.size(); ++x)
+            exactMatchIndex = new ExactMatchIndex(records);
+            nonKeyMatchIndex = new NonKeyMatchIndex(records);
+            elapsedTimeIndex = new ElapsedTimeIndex(records, FORCE_ELAPSED_TIME_CASE);
+            if (PARALLEL_BASE_TECHNIQUES)
+            {
+                applyBaseTechniquesInParallel();
+            }
+            else
             {
-                applyBaseTechniques(x);
+                for (int x = 0; x < records.size(); ++x)
+                {
+                    applyBaseTechniques(x);
+                }
             }
             end = System.currentTimeMillis();
             System.out.println("Base set of deduplication techniques takes " + (end - start) + "ms");
@@ -401,70 +754,38 @@ public class TemporalDedup
              * Step 4. Determine LCS sequence for each record type (temporal grouping value)
              */
             start = System.currentTimeMillis();
-            HashMap<String, RecordTypeSequence> map = new HashMap<String, RecordTypeSequence>();
-            HashMap<String, RecordTypeSequence> contingency = new HashMap<String, RecordTypeSequence>();
-            for (int i = 0; i < records.size(); ++i)
+            Map<String, RecordTypeSequence> map = null;
+            ForkJoinPool reductionPool = null;
+            if (LCS_REDUCTION__TREE)
             {
-                DataRecord r = records.get(i);
-                String id = r.getRecordType();
-                String seq = r.getEventSequence();
-                RecordTypeSequence gs;
-
-                /*
-                 * if all expected timestamps are present and the record isn't a predicted duplicate after the base set
-                 * of techniques have been applied, then the record is eligible to be sampled for LCS determination
-                 */
-                if (r.allTimestamped() && !r.hasKnownDuplicate())
+                System.out.println("Reducing sampled sequences to each LCS as a tree using " + NUMBER_OF_THREADS
+                        + " threads");
+                reductionPool = new ForkJoinPool(NUMBER_OF_THREADS);
+            }
+            try
+            {
+                if (PARALLEL_LCS)
                 {
-                    if (map.containsKey(id))
-                    {
-                        gs = map.get(id);
-                        gs.addSequence(seq);
-
-                        map.put(id, gs);
-                    }
-                    else
-                    {
-                        gs = new RecordTypeSequence(id);
-                        gs.addSequence(seq);
-
-                        map.put(id, gs);
-                    }
+                    map = determineRecordTypeSequencesInParallel(reductionPool);
                 }
-                /*
-                 * Otherwise, if the record isn't known to have a duplicate after the base set of techniques and has at
-                 * least one timestamp, let's use its information to determine a contingency sequence
-                 */
-                else if (r.anyTimestamped() && !r.hasKnownDuplicate())
+                else
                 {
-                    if (contingency.containsKey(id))
-                    {
-                        gs = contingency.get(id);
-                        gs.addSequence(seq);
-
-                        contingency.put(id, gs);
-                    }
-                    else
-                    {
-                        gs = new RecordTypeSequence(id);
-                        gs.addSequence(seq);
-
-                        contingency.put(id, gs);
-                    }
+                    map = determineRecordTypeSequences(reductionPool);
                 }
             }
-            /*
-             * Reconciliation. If there is a record type that doesn't have a sequence stored, then we promote up from
-             * the contingency list.
-             */
-            Iterator<String> contingencyIds = contingency.keySet().iterator();
-            while (contingencyIds.hasNext())
+            finally
             {
-                String id = contingencyIds.next();
-                map.putIfAbsent(id, contingency.get(id));
+                if (reductionPool != null)
+                {
+                    reductionPool.shutdown();
+                }
             }
             end = System.currentTimeMillis();
             System.out.println("Determining LCS sequence applicable to each record type takes " + (end - start) + "ms");
+            if (LCS_REDUCTION__TREE && LCS_DIAGNOSTICS)
+            {
+                reportLCSReduction(map);
+            }
 
             /*
              * Step 5. Determine LCS adherence for each record
@@ -509,6 +830,8 @@ public class TemporalDedup
              * Step 6. Apply unconstrained order match duplication check
              */
             start = System.currentTimeMillis();
+            unconstrainedOrderIndex = new UnconstrainedOrderIndex(records,
+                    UNCONSTRAINED_ORDER__MINIMUM_SEQUENCE_LENGTH);
             for (int x = 0; x < records.size(); ++x)
             {
                 applyUnconstrainedOrderCheck(x);
@@ -530,6 +853,8 @@ public class TemporalDedup
             System.out.println("--- " + numRecordsNotAdheredToLcs + " records did not adhere to LCS and "
                     + unconstrainedOrderDuplicates.size()
                     + " records were flagged as duplicate for unconstrained order match");
+            System.out.println("--- " + predictedDupIDs.size() + " suspected duplicate records form "
+                    + clusters.getNumDuplicateClusters() + " duplicate clusters");
         }
         catch (Exception e)
         {
@@ -539,124 +864,522 @@ public class TemporalDedup
 
     private boolean addPredictedDuplicate(int _id)
     {
-        boolean added = false;
+        return predictedDupIDs.add(_id);
+    }
 
-        if (!predictedDupIDs.contains(_id))
+    /*
+     * Applies the base set of techniques for TemporalDedup, as described in Section 4.3.2 of the manuscript.
+     * 
+     * Rather than compare the record at _index with every later record, only the later records that share one of its
+     * exact match, non-key match, key value, or elapsed time groups are visited. Those candidates are visited in
+     * ascending order and each pair is flagged with its first applicable duplicate class.
+     */
+    private void applyBaseTechniques(int _index)
+    {
+        ArrayList<Integer> candidates = new ArrayList<Integer>();
+        addLaterGroupMembers(exactMatchIndex.getGroupOf(_index), _index, candidates);
+        addLaterGroupMembers(nonKeyMatchIndex.getGroupOf(_index), _index, candidates);
+        addLaterGroupMembers(keyValueIndex.getGroupOf(_index), _index, candidates);
+        addLaterGroupMembers(elapsedTimeIndex.getGroupOf(_index), _index, candidates);
+        Collections.sort(candidates);
+
+        int previous = -1;
+        for (int c = 0; c < candidates.size(); ++c)
         {
-            predictedDupIDs.add(_id);
-            added = true;
-        }
+            int i = candidates.get(c);
 
-        return added;
+            // the same record may be a candidate through more than one group
+            if (i != previous)
+            {
+                previous = i;
+                String duplicationClass = classifyBaseMatch(_index, i);
+
+                if (duplicationClass != null)
+                {
+                    addMatch(_index, i, duplicationClass);
+                }
+            }
+        }
     }
 
     /*
-     * Applies the base set of techniques for TemporalDedup, as described in Section 4.3.2 of the manuscript
+     * Returns the duplicate class of the base set of techniques that applies to the two given records, or null if
+     * none applies. The classes are checked in order of precedence, so a pair of records is only ever flagged with its
+     * first applicable class.
      */
-    private void applyBaseTechniques(int _index)
+    private String classifyBaseMatch(int _review, int _potential)
     {
-        DataRecord review = records.get(_index);
-        DataRecord potential;
+        String duplicationClass = null;
 
-        boolean elapsedTimeCheckEligible = FORCE_ELAPSED_TIME_CASE;
-        if (review.getElapsedTime() > 0 && review.getTimestampGranularity() != DataRecord.TimestampGranularity.UNKNOWN
-                && review.getTimestampGranularity() != DataRecord.TimestampGranularity.DATE)
+        if (exactMatchIndex.sameGroup(_review, _potential))
+        {
+            duplicationClass = DuplicationClasses.EXACT_MATCH;
+        }
+        else if (nonKeyMatchIndex.sameGroup(_review, _potential))
+        {
+            duplicationClass = DuplicationClasses.NONKEY_MATCH;
+        }
+        else if (keyValueIndex.sameGroup(_review, _potential))
+        {
+            // if the two records share the same key(s) and aren't an exact match, then the difference is
+            // attributable to modified attribute values
+            duplicationClass = DuplicationClasses.MODIFIED_VALUES;
+        }
+        /*
+         * we require that the elapsed time be greater than zero to be considered (must have multiple timestamps for
+         * this to be possible, otherwise earliest = latest, so the delta is zero)
+         * 
+         * we also require the timestamp granularities to be the the same level and for the granularity to be time of
+         * day or exact; the elapsed time index only buckets records that meet those requirements and share the same
+         * record type
+         */
+        else if (elapsedTimeIndex.sameGroup(_review, _potential))
         {
-            elapsedTimeCheckEligible = true;
+            duplicationClass = DuplicationClasses.ELAPSED_TIME_MATCH;
         }
 
-        for (int i = _index + 1; i < records.size(); ++i)
+        return duplicationClass;
+    }
+
+    /*
+     * Flags the two given records as duplicates of each other under the given duplicate class and merges their
+     * duplicate clusters
+     */
+    private void addMatch(int _review, int _potential, String _duplicationClass)
+    {
+        records.get(_potential).addMatch(Integer.valueOf(_review), _duplicationClass);
+        addPredictedDuplicate(Integer.valueOf(_review));
+
+        records.get(_review).addMatch(Integer.valueOf(_potential), _duplicationClass);
+        addPredictedDuplicate(Integer.valueOf(_potential));
+
+        clusters.union(_review, _potential);
+    }
+
+    /*
+     * Applies the base set of techniques across a pool of NUMBER_OF_THREADS threads. Other than the exact and non-key
+     * matches, every base technique only pairs records of the same record type, so the records are partitioned by
+     * record type with one additional global partition for the exact and non-key matches. The matches found within
+     * each partition are merged and applied in the same order applyBaseTechniques would have applied them, so the
+     * outcome is identical to the sequential pass.
+     */
+    private void applyBaseTechniquesInParallel() throws InterruptedException, ExecutionException
+    {
+        // use a LinkedHashMap so partitions are submitted in the order their record types are first encountered
+        LinkedHashMap<String, ArrayList<Integer>> partitions = new LinkedHashMap<String, ArrayList<Integer>>();
+        for (int x = 0; x < records.size(); ++x)
         {
-            potential = records.get(i);
+            String recordType = records.get(x).getRecordType();
+            ArrayList<Integer> partition = partitions.get(recordType);
 
-            /*
-             * Future enhancement: - make a single call to compare review and potential with an enumerated value return
-             * that indicates only key match, only non-key match, no match, or all match
-             */
-            if (review.exactMatch(potential))
+            if (partition == null)
             {
-                potential.addMatch(Integer.valueOf(_index), DuplicationClasses.EXACT_MATCH);
-                addPredictedDuplicate(Integer.valueOf(_index));
+                partition = new ArrayList<Integer>();
+                partitions.put(recordType, partition);
+            }
+
+            partition.add(x);
+        }
 
-                review.addMatch(Integer.valueOf(i), DuplicationClasses.EXACT_MATCH);
-                addPredictedDuplicate(Integer.valueOf(i));
+        System.out.println("Applying base set of deduplication techniques across " + partitions.size()
+                + " record type partitions using " + NUMBER_OF_THREADS + " threads");
+
+        ForkJoinPool pool = new ForkJoinPool(NUMBER_OF_THREADS);
+        ArrayList<ForkJoinTask<ArrayList<MatchEdge>>> tasks = new ArrayList<ForkJoinTask<ArrayList<MatchEdge>>>();
+
+        tasks.add(pool.submit(new Callable<ArrayList<MatchEdge>>()
+        {
+            @Override
+            public ArrayList<MatchEdge> call()
+            {
+                return findGlobalBaseMatches();
             }
-            else if (review.equalsIgnoreKeyFields(potential))
+        }));
+
+        Iterator<ArrayList<Integer>> iterator = partitions.values().iterator();
+        while (iterator.hasNext())
+        {
+            final ArrayList<Integer> partition = iterator.next();
+
+            tasks.add(pool.submit(new Callable<ArrayList<MatchEdge>>()
             {
-                potential.addMatch(Integer.valueOf(_index), DuplicationClasses.NONKEY_MATCH);
-                addPredictedDuplicate(Integer.valueOf(_index));
+                @Override
+                public ArrayList<MatchEdge> call()
+                {
+                    return findRecordTypeBaseMatches(partition);
+                }
+            }));
+        }
 
-                review.addMatch(Integer.valueOf(i), DuplicationClasses.NONKEY_MATCH);
-                addPredictedDuplicate(Integer.valueOf(i));
+        ArrayList<MatchEdge> edges = new ArrayList<MatchEdge>();
+        try
+        {
+            for (int t = 0; t < tasks.size(); ++t)
+            {
+                edges.addAll(tasks.get(t).get());
             }
-            else if (review.sharesSameKeys(potential))
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+
+        // every pair of records appears in at most one partition, so sorting restores the sequential order
+        Collections.sort(edges);
+
+        for (int e = 0; e < edges.size(); ++e)
+        {
+            MatchEdge edge = edges.get(e);
+            addMatch(edge.getReview(), edge.getPotential(), edge.getDuplicationClass());
+        }
+    }
+
+    /*
+     * Step 4 (sequential). Samples the event sequences of each record type, in record order, to determine the LCS of
+     * each record type. Returns the LCS of every record type, keyed by record type, as an immutable map. Given a pool,
+     * each record type's sampled sequences are reduced to its LCS as a tree on the pool.
+     */
+    private Map<String, RecordTypeSequence> determineRecordTypeSequences(ForkJoinPool _reductionPool)
+    {
+        HashMap<String, RecordTypeSequence> map = new HashMap<String, RecordTypeSequence>();
+        HashMap<String, RecordTypeSequence> contingency = new HashMap<String, RecordTypeSequence>();
+        for (int i = 0; i < records.size(); ++i)
+        {
+            DataRecord r = records.get(i);
+            String id = r.getRecordType();
+            String seq = r.getEventSequence();
+            RecordTypeSequence gs;
+
+            /*
+             * if all expected timestamps are present and the record isn't a predicted duplicate after the base set
+             * of techniques have been applied, then the record is eligible to be sampled for LCS determination
+             */
+            if (r.allTimestamped() && !r.hasKnownDuplicate())
             {
-                // if the two records share the same key(s) and aren't an exact match, then the difference is
-                // attributable to modified attribute values
-                potential.addMatch(Integer.valueOf(_index), DuplicationClasses.MODIFIED_VALUES);
-                addPredictedDuplicate(Integer.valueOf(_index));
+                if (map.containsKey(id))
+                {
+                    gs = map.get(id);
+                    gs.addSequence(seq);
+
+                    map.put(id, gs);
+                }
+                else
+                {
+                    gs = new RecordTypeSequence(id, _reductionPool);
+                    gs.addSequence(seq);
 
-                review.addMatch(Integer.valueOf(i), DuplicationClasses.MODIFIED_VALUES);
-                addPredictedDuplicate(Integer.valueOf(i));
+                    map.put(id, gs);
+                }
             }
             /*
-             * we require that the elapsed time be greater than zero to be considered (must have multiple timestamps for
-             * this to be possible, otherwise earliest = latest, so the delta is zero)
-             * 
-             * we also require the timestamp granularities to be the the same level and for the granularity to be time
-             * of day or exact
+             * Otherwise, if the record isn't known to have a duplicate after the base set of techniques and has at
+             * least one timestamp, let's use its information to determine a contingency sequence
              */
-            else if (elapsedTimeCheckEligible && review.getElapsedTime() == potential.getElapsedTime()
-                    && review.getRecordType().equals(potential.getRecordType())
-                    && review.getTimestampGranularity() == potential.getTimestampGranularity())
+            else if (r.anyTimestamped() && !r.hasKnownDuplicate())
             {
-                potential.addMatch(Integer.valueOf(_index), DuplicationClasses.ELAPSED_TIME_MATCH);
-                addPredictedDuplicate(Integer.valueOf(_index));
+                if (contingency.containsKey(id))
+                {
+                    gs = contingency.get(id);
+                    gs.addSequence(seq);
 
-                review.addMatch(Integer.valueOf(i), DuplicationClasses.ELAPSED_TIME_MATCH);
-                addPredictedDuplicate(Integer.valueOf(i));
+                    contingency.put(id, gs);
+                }
+                else
+                {
+                    gs = new RecordTypeSequence(id, _reductionPool);
+                    gs.addSequence(seq);
+
+                    contingency.put(id, gs);
+                }
             }
         }
+        /*
+         * Reconciliation. If there is a record type that doesn't have a sequence stored, then we promote up from
+         * the contingency list.
+         */
+        Iterator<String> contingencyIds = contingency.keySet().iterator();
+        while (contingencyIds.hasNext())
+        {
+            String id = contingencyIds.next();
+            map.putIfAbsent(id, contingency.get(id));
+        }
+
+        // materialize each LCS here, while the reduction pool is up, so that step 5 only reads it
+        Iterator<RecordTypeSequence> sequences = map.values().iterator();
+        while (sequences.hasNext())
+        {
+            sequences.next().getLCS();
+        }
+
+        return Collections.unmodifiableMap(map);
     }
 
     /*
-     * Applies the unconstrained order match check for TemporalDedup, as described in Section 4.3.3 of the manuscript
+     * Step 4 (parallel). Groups the records eligible to be sampled, and the contingency records, by record type in one
+     * pass, then samples the event sequences of each record type and folds them into its LCS concurrently, one task
+     * per record type. The records of a record type are sampled in record order, so each record type's LCS is the one
+     * the sequential step determines. Returns the LCS of every record type, keyed by record type, as an immutable map.
+     * Given a pool, the record types' tasks run on it and each reduces its sampled sequences as a tree on it too, so a
+     * record type with many samples is reduced by the threads the smaller record types leave idle.
      */
-    private void applyUnconstrainedOrderCheck(int _index)
+    private Map<String, RecordTypeSequence> determineRecordTypeSequencesInParallel(ForkJoinPool _reductionPool)
+            throws InterruptedException, ExecutionException
     {
-        DataRecord review = records.get(_index);
-        DataRecord potential;
+        LinkedHashMap<String, ArrayList<Integer>> eligible = new LinkedHashMap<String, ArrayList<Integer>>();
+        LinkedHashMap<String, ArrayList<Integer>> contingency = new LinkedHashMap<String, ArrayList<Integer>>();
 
-        for (int i = _index + 1; i < records.size(); ++i)
+        for (int x = 0; x < records.size(); ++x)
         {
-            potential = records.get(i);
+            DataRecord r = records.get(x);
 
-            // only go looking if we haven't already found a match between these two records
-            if (!review.containsMatch(Integer.valueOf(i)))
+            // the same eligibility as the sequential step
+            if (r.allTimestamped() && !r.hasKnownDuplicate())
             {
-                // if the unconstrained orders matches and the record type matches and the unconstrained order is of
-                // requisite length
-                if (review.getEventSequenceUnconstrained().equals(potential.getEventSequenceUnconstrained())
-                        && review.getRecordType().equals(potential.getRecordType())
-                        && review.getEventSequenceUnconstrainedLength() >= UNCONSTRAINED_ORDER__MINIMUM_SEQUENCE_LENGTH)
-                {
-                    potential.addMatch(Integer.valueOf(_index), DuplicationClasses.UNCONSTRAINED_ORDER_MATCH);
-                    addPredictedDuplicate(Integer.valueOf(_index));
+                addToPartition(eligible, r.getRecordType(), x);
+            }
+            else if (r.anyTimestamped() && !r.hasKnownDuplicate())
+            {
+                addToPartition(contingency, r.getRecordType(), x);
+            }
+        }
+
+        // reconciliation: a record type without eligible records is promoted up from the contingency records
+        Iterator<String> contingencyIds = contingency.keySet().iterator();
+        while (contingencyIds.hasNext())
+        {
+            String id = contingencyIds.next();
+            eligible.putIfAbsent(id, contingency.get(id));
+        }
+
+        System.out.println("Determining LCS across " + eligible.size() + " record types using " + NUMBER_OF_THREADS
+                + " threads");
 
-                    review.addMatch(Integer.valueOf(i), DuplicationClasses.UNCONSTRAINED_ORDER_MATCH);
-                    addPredictedDuplicate(Integer.valueOf(i));
+        ForkJoinPool pool = (_reductionPool != null) ? _reductionPool : new ForkJoinPool(NUMBER_OF_THREADS);
+        ArrayList<ForkJoinTask<RecordTypeSequence>> tasks = new ArrayList<ForkJoinTask<RecordTypeSequence>>();
+
+        Iterator<String> ids = eligible.keySet().iterator();
+        while (ids.hasNext())
+        {
+            final String id = ids.next();
+            final ArrayList<Integer> partition = eligible.get(id);
+
+            tasks.add(pool.submit(new Callable<RecordTypeSequence>()
+            {
+                @Override
+                public RecordTypeSequence call()
+                {
+                    RecordTypeSequence gs = new RecordTypeSequence(id, _reductionPool);
 
-                    if (!unconstrainedOrderDuplicates.contains(i))
+                    for (int i = 0; i < partition.size(); ++i)
                     {
-                        unconstrainedOrderDuplicates.add(i);
+                        gs.addSequence(records.get(partition.get(i)).getEventSequence());
                     }
-                    if (!unconstrainedOrderDuplicates.contains(_index))
+
+                    // materialize the LCS here so that step 5 only reads it
+                    gs.getLCS();
+
+                    return gs;
+                }
+            }));
+        }
+
+        HashMap<String, RecordTypeSequence> map = new HashMap<String, RecordTypeSequence>();
+        try
+        {
+            for (int t = 0; t < tasks.size(); ++t)
+            {
+                RecordTypeSequence gs = tasks.get(t).get();
+                map.put(gs.getId(), gs);
+            }
+        }
+        finally
+        {
+            // a reduction pool is the caller's to shut down
+            if (pool != _reductionPool)
+            {
+                pool.shutdown();
+            }
+        }
+
+        return Collections.unmodifiableMap(map);
+    }
+
+    /*
+     * Reports, for each record type, the LCS its sampled sequences were reduced to as a tree alongside the LCS the
+     * chained fold of the same samples yields, and how often the two agree
+     */
+    private static void reportLCSReduction(Map<String, RecordTypeSequence> _map)
+    {
+        ArrayList<String> ids = new ArrayList<String>(_map.keySet());
+        Collections.sort(ids);
+
+        int numSame = 0;
+        long treeTime = 0;
+        long chainTime = 0;
+
+        System.out.println("LCS reduction diagnostics (tree versus chained fold):");
+        for (int i = 0; i < ids.size(); ++i)
+        {
+            RecordTypeSequence rts = _map.get(ids.get(i));
+            LCS tree = rts.getLCS();
+
+            if (tree == null)
+            {
+                System.out.println("  " + ids.get(i) + ": no samples");
+                continue;
+            }
+
+            long start = System.currentTimeMillis();
+            LCS chain = rts.getChainedLCS();
+            long end = System.currentTimeMillis();
+
+            boolean same = tree.getSequence().equals(chain.getSequence());
+            if (same)
+            {
+                ++numSame;
+            }
+            treeTime += rts.getReductionTime();
+            chainTime += end - start;
+
+            System.out.println("  " + ids.get(i) + ": " + rts.getNumSampled() + " samples (" + rts.getNumDistinctSampled()
+                    + " distinct), tree LCS length "
+                    + tree.getLength() + " in " + rts.getReductionTime() + "ms, chained LCS length " + chain.getLength()
+                    + " in " + (end - start) + "ms" + (same ? ", same" : ", different"));
+        }
+        System.out.println("  " + numSame + " of " + ids.size() + " record types have the same LCS either way; tree "
+                + treeTime + "ms, chained " + chainTime + "ms in total");
+    }
+
+    /*
+     * Appends the record index to the partition of the given record type, creating the partition if need be
+     */
+    private static void addToPartition(LinkedHashMap<String, ArrayList<Integer>> _partitions, String _recordType,
+            int _index)
+    {
+        ArrayList<Integer> partition = _partitions.get(_recordType);
+
+        if (partition == null)
+        {
+            partition = new ArrayList<Integer>();
+            _partitions.put(_recordType, partition);
+        }
+
+        partition.add(_index);
+    }
+
+    /*
+     * Global partition of the parallel base techniques: finds the exact and non-key matches across all records. Does
+     * not modify any record.
+     */
+    private ArrayList<MatchEdge> findGlobalBaseMatches()
+    {
+        ArrayList<MatchEdge> edges = new ArrayList<MatchEdge>();
+
+        for (int x = 0; x < records.size(); ++x)
+        {
+            ArrayList<Integer> candidates = new ArrayList<Integer>();
+            addLaterGroupMembers(exactMatchIndex.getGroupOf(x), x, candidates);
+            addLaterGroupMembers(nonKeyMatchIndex.getGroupOf(x), x, candidates);
+            Collections.sort(candidates);
+
+            int previous = -1;
+            for (int c = 0; c < candidates.size(); ++c)
+            {
+                int i = candidates.get(c);
+
+                if (i != previous)
+                {
+                    previous = i;
+                    edges.add(new MatchEdge(x, i, classifyBaseMatch(x, i)));
+                }
+            }
+        }
+
+        return edges;
+    }
+
+    /*
+     * Record type partition of the parallel base techniques: finds the modified value and elapsed time matches of the
+     * records with the given IDs. Pairs that are also exact or non-key matches are left to the global partition. Does
+     * not modify any record.
+     */
+    private ArrayList<MatchEdge> findRecordTypeBaseMatches(ArrayList<Integer> _partition)
+    {
+        ArrayList<MatchEdge> edges = new ArrayList<MatchEdge>();
+
+        for (int p = 0; p < _partition.size(); ++p)
+        {
+            int x = _partition.get(p);
+
+            ArrayList<Integer> candidates = new ArrayList<Integer>();
+            addLaterGroupMembers(keyValueIndex.getGroupOf(x), x, candidates);
+            addLaterGroupMembers(elapsedTimeIndex.getGroupOf(x), x, candidates);
+            Collections.sort(candidates);
+
+            int previous = -1;
+            for (int c = 0; c < candidates.size(); ++c)
+            {
+                int i = candidates.get(c);
+
+                if (i != previous)
+                {
+                    previous = i;
+                    String duplicationClass = classifyBaseMatch(x, i);
+
+                    if (duplicationClass == DuplicationClasses.MODIFIED_VALUES
+                            || duplicationClass == DuplicationClasses.ELAPSED_TIME_MATCH)
                     {
-                        unconstrainedOrderDuplicates.add(_index);
+                        edges.add(new MatchEdge(x, i, duplicationClass));
                     }
                 }
             }
         }
+
+        return edges;
+    }
+
+    /*
+     * Appends the members of _group (ascending record IDs) that come after _index to _candidates
+     */
+    private static void addLaterGroupMembers(ArrayList<Integer> _group, int _index, ArrayList<Integer> _candidates)
+    {
+        int position = Collections.binarySearch(_group, _index);
+
+        // if _index is not itself in the group, binarySearch returns (-(insertion point) - 1)
+        position = (position >= 0) ? position + 1 : -(position + 1);
+
+        for (int i = position; i < _group.size(); ++i)
+        {
+            _candidates.add(_group.get(i));
+        }
+    }
+
+    /*
+     * Applies the unconstrained order match check for TemporalDedup, as described in Section 4.3.3 of the manuscript.
+     * 
+     * Only the later records that share the record type and unconstrained order of the record at _index are visited;
+     * the unconstrained order index only groups records whose unconstrained order is of requisite length.
+     */
+    private void applyUnconstrainedOrderCheck(int _index)
+    {
+        DataRecord review = records.get(_index);
+
+        ArrayList<Integer> candidates = new ArrayList<Integer>();
+        addLaterGroupMembers(unconstrainedOrderIndex.getGroupOf(_index), _index, candidates);
+
+        for (int c = 0; c < candidates.size(); ++c)
+        {
+            int i = candidates.get(c);
+
+            // only go looking if we haven't already found a match between these two records
+            if (!review.containsMatch(Integer.valueOf(i)))
+            {
+                addMatch(_index, i, DuplicationClasses.UNCONSTRAINED_ORDER_MATCH);
+
+                unconstrainedOrderDuplicates.add(i);
+                unconstrainedOrderDuplicates.add(_index);
+            }
+        }
     }
     
     private static void userQueries(ArrayList<DataRecord> _records)
@@ -10,6 +10,7 @@ import org.apache.commons.text.similarity.LevenshteinDistance;
 import info.debatty.java.lsh.MinHash;
 import temporal.dedup.records.DataRecord;
 import temporal.dedup.utils.ConfusionMatrix;
+import temporal.dedup.utils.DuplicateRegistry;
 
 /**
  * Implementation of the Adaptive Sorted Neighborhood Method (ASNM) consistent with the concepts established in:
@@ -146,7 +147,8 @@ public class ASNM implements ComparisonMethod_I
      * Interface implementation.
      * 
      * Execute the comparison algorithm against the given set of data records and call the provided confusion matrix to
-     * assess the prediction (_cm.assessPrediction).
+     * assess the prediction (_cm.assessPredictions). The predictions of all similarity thresholds are assessed
+     * together.
      * 
      * @param _cm      The confusion matrix object that may assess the prediction of this method against truth data
      * @param _headers The set of header names corresponding to each of a data record's raw attributes
@@ -167,6 +169,10 @@ public class ASNM implements ComparisonMethod_I
         long end = System.currentTimeMillis();
         long sortAndBlockingTime = end-start;
 
+        // the predictions of every threshold are assessed together once all thresholds have been run
+        ArrayList<String> labels = new ArrayList<String>(recordSimilarityThresholds.size());
+        ArrayList<DuplicateRegistry> predictions = new ArrayList<DuplicateRegistry>(recordSimilarityThresholds.size());
+
         // for each similarity threshold, compare each record within its own block for all blocks
         for (int t = 0; t < recordSimilarityThresholds.size(); ++t)
         {
@@ -175,7 +181,7 @@ public class ASNM implements ComparisonMethod_I
             start = System.currentTimeMillis();
 
             int similarityCount = 0;
-            ArrayList<Integer> predictedDupIDs = new ArrayList<Integer>();
+            DuplicateRegistry predictedDupIDs = new DuplicateRegistry(records.size() - 1);
 
             int numBlocks = blockStartIndices.size();
 
@@ -197,10 +203,7 @@ public class ASNM implements ComparisonMethod_I
                     {
                         ++similarityCount;
 
-                        if (!predictedDupIDs.contains(rec.getId()))
-                        {
-                            predictedDupIDs.add(rec.getId());
-                        }
+                        predictedDupIDs.add(rec.getId());
                     }
                 }
             }
@@ -211,8 +214,11 @@ public class ASNM implements ComparisonMethod_I
             System.out.println("Detecting a total of " + similarityCount
                     + " suspected duplicate records based on similarity among " + _records.size());
 
-            _cm.assessPrediction(predictedDupIDs);
+            labels.add("ASNM (threshold = " + threshold + ")");
+            predictions.add(predictedDupIDs);
         }
+
+        _cm.assessPredictions(labels, predictions);
     }
 
     /*
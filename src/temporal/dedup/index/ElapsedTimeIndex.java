@@ -0,0 +1,61 @@
+package temporal.dedup.index;
+
+import java.util.ArrayList;
+
+import temporal.dedup.records.DataRecord;
+
+/**
+ * Buckets records by (record type, timestamp granularity, elapsed time) for the ELAPSED_TIME_MATCH duplicate class.
+ * Only records eligible for the elapsed time check are indexed: the elapsed time must be greater than zero (requires
+ * multiple timestamps) and the timestamp granularity must be time of day or exact, unless the check is forced. Since
+ * every record within a bucket shares the same elapsed time and granularity, eligibility is the same for the whole
+ * bucket.
+ */
+public class ElapsedTimeIndex extends RecordGroupIndex
+{
+    private boolean forceEligible;
+
+    /**
+     * @param _records       records to bucket, ordered by record ID
+     * @param _forceEligible when true, overrides the granularity and elapsed time eligibility rules so that every
+     *                       record is indexed
+     */
+    public ElapsedTimeIndex(ArrayList<DataRecord> _records, boolean _forceEligible)
+    {
+        forceEligible = _forceEligible;
+
+        build(_records);
+    }
+
+    @Override
+    protected boolean isEligible(DataRecord _record)
+    {
+        boolean eligible = forceEligible;
+
+        if (_record.getElapsedTime() > 0 && _record.getTimestampGranularity() != DataRecord.TimestampGranularity.UNKNOWN
+                && _record.getTimestampGranularity() != DataRecord.TimestampGranularity.DATE)
+        {
+            eligible = true;
+        }
+
+        return eligible;
+    }
+
+    @Override
+    protected long fingerprint(DataRecord _record)
+    {
+        long hash = _record.getRecordType().hashCode();
+        hash = hash * 31 + _record.getTimestampGranularity().ordinal();
+        hash = hash * 0x9e3779b97f4a7c15L + _record.getElapsedTime();
+
+        return hash;
+    }
+
+    @Override
+    protected boolean confirm(DataRecord _representative, DataRecord _candidate)
+    {
+        return _representative.getElapsedTime() == _candidate.getElapsedTime()
+                && _representative.getRecordType().equals(_candidate.getRecordType())
+                && _representative.getTimestampGranularity() == _candidate.getTimestampGranularity();
+    }
+}
@@ -0,0 +1,29 @@
+package temporal.dedup.index;
+
+import java.util.ArrayList;
+
+import temporal.dedup.records.DataRecord;
+
+/**
+ * Groups records whose raw attribute values are identical (the EXACT_MATCH duplicate class). Records are bucketed by
+ * the full-row fingerprint computed at parse time and confirmed with DataRecord.exactMatch.
+ */
+public class ExactMatchIndex extends RecordGroupIndex
+{
+    public ExactMatchIndex(ArrayList<DataRecord> _records)
+    {
+        build(_records);
+    }
+
+    @Override
+    protected long fingerprint(DataRecord _record)
+    {
+        return _record.getRowFingerprint();
+    }
+
+    @Override
+    protected boolean confirm(DataRecord _representative, DataRecord _candidate)
+    {
+        return _representative.exactMatch(_candidate);
+    }
+}
@@ -0,0 +1,94 @@
+package temporal.dedup.index;
+
+import java.util.ArrayList;
+
+import temporal.dedup.records.DataRecord;
+import temporal.dedup.records.KeyAttribute;
+
+/**
+ * Groups records that share the same key attribute value(s), i.e. maps each (primary value, secondary value) pair to
+ * the IDs of the records holding it. Any two records of a group with more than one member are candidates for the
+ * MODIFIED_VALUES duplicate class. Records are bucketed by the key fingerprint computed when the key is applied and
+ * confirmed with DataRecord.sharesSameKeys.
+ */
+public class KeyValueIndex extends RecordGroupIndex
+{
+    private ArrayList<DataRecord> records;
+    private KeyAttribute key;
+
+    /**
+     * Precondition: _key has already been applied to every record in _records
+     * 
+     * @param _records records to group, ordered by record ID
+     * @param _key     the key attribute(s) applied to the records
+     */
+    public KeyValueIndex(ArrayList<DataRecord> _records, KeyAttribute _key)
+    {
+        records = _records;
+        key = new KeyAttribute(_key);
+
+        build(_records);
+    }
+
+    @Override
+    protected long fingerprint(DataRecord _record)
+    {
+        return _record.getKeyFingerprint();
+    }
+
+    @Override
+    protected boolean confirm(DataRecord _representative, DataRecord _candidate)
+    {
+        return _representative.sharesSameKeys(_candidate);
+    }
+
+    /**
+     * Returns the primary key attribute value shared by all records in the given group.
+     * 
+     * @param _groupId group ID
+     * @return primary key attribute value
+     */
+    public String getPrimaryValue(int _groupId)
+    {
+        return records.get(getGroup(_groupId).get(0)).getAttributeValueAt(key.getPrimaryAttributeIndex());
+    }
+
+    /**
+     * Returns the secondary key attribute value shared by all records in the given group, or an empty string if the key
+     * is a single attribute.
+     * 
+     * @param _groupId group ID
+     * @return secondary key attribute value
+     */
+    public String getSecondaryValue(int _groupId)
+    {
+        String value = "";
+
+        if (key.getLength() == 2)
+        {
+            value = records.get(getGroup(_groupId).get(0)).getAttributeValueAt(key.getSecondaryAttributeIndex());
+        }
+
+        return value;
+    }
+
+    /**
+     * Returns the IDs of the groups holding more than one record, i.e. the keys that are not unique.
+     * 
+     * @return IDs of groups with more than one member
+     */
+    public ArrayList<Integer> getSharedKeyGroupIds()
+    {
+        ArrayList<Integer> shared = new ArrayList<Integer>();
+
+        for (int i = 0; i < getNumGroups(); ++i)
+        {
+            if (getGroup(i).size() > 1)
+            {
+                shared.add(i);
+            }
+        }
+
+        return shared;
+    }
+}
@@ -0,0 +1,30 @@
+package temporal.dedup.index;
+
+import java.util.ArrayList;
+
+import temporal.dedup.records.DataRecord;
+
+/**
+ * Groups records whose raw attribute values are identical outside of the key attribute(s) (the NONKEY_MATCH duplicate
+ * class). Records are bucketed by the non-key fingerprint computed when the key is applied and confirmed with
+ * DataRecord.equalsIgnoreKeyFields.
+ */
+public class NonKeyMatchIndex extends RecordGroupIndex
+{
+    public NonKeyMatchIndex(ArrayList<DataRecord> _records)
+    {
+        build(_records);
+    }
+
+    @Override
+    protected long fingerprint(DataRecord _record)
+    {
+        return _record.getNonKeyFingerprint();
+    }
+
+    @Override
+    protected boolean confirm(DataRecord _representative, DataRecord _candidate)
+    {
+        return _representative.equalsIgnoreKeyFields(_candidate);
+    }
+}
@@ -0,0 +1,189 @@
+package temporal.dedup.index;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import temporal.dedup.records.DataRecord;
+
+/**
+ * Partitions a set of records into groups of mutually equivalent records so that a deduplication technique only needs
+ * to compare records within the same group rather than every record against every other record. Records are first
+ * bucketed by a 64-bit fingerprint; membership in a group is then confirmed against the group's first record so that
+ * fingerprint collisions never merge records that are not truly equivalent.
+ * 
+ * Group membership is indexed by the position of each record within the list provided to build, which is the same as
+ * the record ID assigned at parse time.
+ */
+public abstract class RecordGroupIndex
+{
+    /*
+     * Group ID for each record, or NO_GROUP if the record was not eligible for this index
+     */
+    private int[] groupByRecord;
+
+    /*
+     * Record IDs belonging to each group, in ascending order
+     */
+    private ArrayList<ArrayList<Integer>> groups;
+
+    public static final int NO_GROUP = -1;
+
+    protected RecordGroupIndex()
+    {
+        groupByRecord = new int[0];
+        groups = new ArrayList<ArrayList<Integer>>();
+    }
+
+    /**
+     * Returns the fingerprint used to bucket the given record. Records that are equivalent for the purposes of this
+     * index must produce the same fingerprint.
+     * 
+     * @param _record record to fingerprint
+     * @return 64-bit fingerprint of the record
+     */
+    protected abstract long fingerprint(DataRecord _record);
+
+    /**
+     * Confirms that two records sharing a fingerprint are truly equivalent for the purposes of this index.
+     * 
+     * @param _representative first record of an existing group
+     * @param _candidate      record being placed
+     * @return true if _candidate belongs in the same group as _representative
+     */
+    protected abstract boolean confirm(DataRecord _representative, DataRecord _candidate);
+
+    /**
+     * Determines whether the given record participates in this index at all. Ineligible records are never grouped.
+     * 
+     * @param _record record to check
+     * @return true if the record should be grouped; false otherwise
+     */
+    protected boolean isEligible(DataRecord _record)
+    {
+        return true;
+    }
+
+    /**
+     * Groups the given records. Intended to be called once by the constructor of the implementing index.
+     * 
+     * @param _records records to group, ordered by record ID
+     */
+    protected void build(ArrayList<DataRecord> _records)
+    {
+        groupByRecord = new int[_records.size()];
+        groups = new ArrayList<ArrayList<Integer>>();
+
+        // most fingerprints map to a single group; more than one only occurs on a fingerprint collision
+        HashMap<Long, ArrayList<Integer>> groupsByFingerprint = new HashMap<Long, ArrayList<Integer>>();
+
+        for (int i = 0; i < _records.size(); ++i)
+        {
+            DataRecord record = _records.get(i);
+            groupByRecord[i] = NO_GROUP;
+
+            if (isEligible(record))
+            {
+                assign(_records, record, i, groupsByFingerprint);
+            }
+        }
+    }
+
+    /*
+     * Places the record with the given ID into the first confirmed group sharing its fingerprint, or into a new group
+     * if there is none
+     */
+    private void assign(ArrayList<DataRecord> _records, DataRecord _record, int _recordId,
+            HashMap<Long, ArrayList<Integer>> _groupsByFingerprint)
+    {
+        Long print = Long.valueOf(fingerprint(_record));
+        ArrayList<Integer> candidates = _groupsByFingerprint.get(print);
+
+        if (candidates == null)
+        {
+            candidates = new ArrayList<Integer>(1);
+            _groupsByFingerprint.put(print, candidates);
+        }
+
+        for (int c = 0; c < candidates.size() && groupByRecord[_recordId] == NO_GROUP; ++c)
+        {
+            int groupId = candidates.get(c);
+            DataRecord representative = _records.get(groups.get(groupId).get(0));
+
+            if (confirm(representative, _record))
+            {
+                groups.get(groupId).add(_recordId);
+                groupByRecord[_recordId] = groupId;
+            }
+        }
+
+        if (groupByRecord[_recordId] == NO_GROUP)
+        {
+            ArrayList<Integer> group = new ArrayList<Integer>(1);
+            group.add(_recordId);
+            groups.add(group);
+
+            groupByRecord[_recordId] = groups.size() - 1;
+            candidates.add(groupByRecord[_recordId]);
+        }
+    }
+
+    /**
+     * Returns the ID of the group the given record belongs to, or NO_GROUP if the record was not eligible.
+     * 
+     * @param _recordId record ID (position within the indexed record list)
+     * @return group ID or NO_GROUP
+     */
+    public int getGroupId(int _recordId)
+    {
+        return groupByRecord[_recordId];
+    }
+
+    /**
+     * Returns the record IDs, in ascending order, that belong to the given group.
+     * 
+     * @param _groupId group ID
+     * @return record IDs in the group
+     */
+    public ArrayList<Integer> getGroup(int _groupId)
+    {
+        return groups.get(_groupId);
+    }
+
+    /**
+     * Returns the record IDs, in ascending order, that share a group with the given record. The list includes the
+     * given record itself. An empty list is returned if the record was not eligible.
+     * 
+     * @param _recordId record ID (position within the indexed record list)
+     * @return record IDs in the same group
+     */
+    public ArrayList<Integer> getGroupOf(int _recordId)
+    {
+        int groupId = groupByRecord[_recordId];
+
+        if (groupId == NO_GROUP)
+        {
+            return new ArrayList<Integer>();
+        }
+
+        return groups.get(groupId);
+    }
+
+    public int getNumGroups()
+    {
+        return groups.size();
+    }
+
+    /**
+     * Returns whether two records have been placed in the same group.
+     * 
+     * @param _recordId1 first record ID
+     * @param _recordId2 second record ID
+     * @return true if both records are eligible and share a group
+     */
+    public boolean sameGroup(int _recordId1, int _recordId2)
+    {
+        int groupId = groupByRecord[_recordId1];
+
+        return groupId != NO_GROUP && groupId == groupByRecord[_recordId2];
+    }
+}
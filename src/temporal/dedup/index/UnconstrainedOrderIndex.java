@@ -0,0 +1,52 @@
+package temporal.dedup.index;
+
+import java.util.ArrayList;
+
+import temporal.dedup.records.DataRecord;
+
+/**
+ * Groups records that share the same record type and the same unconstrained event sequence for the
+ * UNCONSTRAINED_ORDER_MATCH duplicate class. Only records whose unconstrained sequence meets the minimum sequence
+ * length are indexed. Since every record within a group shares the same sequence, the length requirement holds for
+ * the whole group.
+ * 
+ * Precondition: the LCS has been applied to every record, which establishes its unconstrained event sequence.
+ */
+public class UnconstrainedOrderIndex extends RecordGroupIndex
+{
+    private int minimumSequenceLength;
+
+    /**
+     * @param _records               records to group, ordered by record ID
+     * @param _minimumSequenceLength minimum number of elements in the unconstrained event sequence for a record to be
+     *                               indexed
+     */
+    public UnconstrainedOrderIndex(ArrayList<DataRecord> _records, int _minimumSequenceLength)
+    {
+        minimumSequenceLength = _minimumSequenceLength;
+
+        build(_records);
+    }
+
+    @Override
+    protected boolean isEligible(DataRecord _record)
+    {
+        return _record.getEventSequenceUnconstrainedLength() >= minimumSequenceLength;
+    }
+
+    @Override
+    protected long fingerprint(DataRecord _record)
+    {
+        long hash = _record.getRecordType().hashCode();
+        hash = hash * 0x9e3779b97f4a7c15L + _record.getEventSequenceUnconstrained().hashCode();
+
+        return hash;
+    }
+
+    @Override
+    protected boolean confirm(DataRecord _representative, DataRecord _candidate)
+    {
+        return _representative.getEventSequenceUnconstrained().equals(_candidate.getEventSequenceUnconstrained())
+                && _representative.getRecordType().equals(_candidate.getRecordType());
+    }
+}
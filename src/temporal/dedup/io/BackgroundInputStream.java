@@ -0,0 +1,217 @@
+package temporal.dedup.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Reads a source stream on a separate thread, handing its bytes to the reader of this stream through a bounded queue
+ * of chunks. Wrapping a decompressing stream in a BackgroundInputStream lets inflation run concurrently with whatever
+ * consumes the decompressed bytes (e.g. parsing), while the bound on the queue caps how far the source may run ahead.
+ * 
+ * An exception thrown by the source is rethrown to the reader once the bytes read before it have been consumed.
+ */
+public class BackgroundInputStream extends InputStream
+{
+    private static final int CHUNK_SIZE = 1 << 16;
+    private static final int QUEUE_CAPACITY = 16;
+
+    /*
+     * Marks the end of the source (or the point at which reading the source failed)
+     */
+    private static final byte[] END = new byte[0];
+
+    private InputStream source;
+    private ArrayBlockingQueue<byte[]> queue;
+    private Thread producer;
+    private volatile IOException failure;
+    private volatile boolean closed;
+
+    /*
+     * Chunk currently being read and the index of its next unread byte
+     */
+    private byte[] chunk;
+    private int next;
+
+    /**
+     * Starts reading _source on a new daemon thread.
+     * 
+     * @param _source stream to read; closed once it has been read to the end or this stream is closed
+     * @param _name   name of the source, used to name the reading thread
+     */
+    public BackgroundInputStream(InputStream _source, String _name)
+    {
+        source = _source;
+        queue = new ArrayBlockingQueue<byte[]>(QUEUE_CAPACITY);
+        failure = null;
+        closed = false;
+        chunk = new byte[0];
+        next = 0;
+
+        producer = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                produce();
+            }
+        }, "BackgroundInputStream-" + _name);
+        producer.setDaemon(true);
+        producer.start();
+    }
+
+    /*
+     * Reads the source into chunks until it is exhausted, fails or this stream is closed
+     */
+    private void produce()
+    {
+        try
+        {
+            int read = CHUNK_SIZE;
+
+            while (read == CHUNK_SIZE && !closed)
+            {
+                byte[] buffer = new byte[CHUNK_SIZE];
+                read = source.readNBytes(buffer, 0, CHUNK_SIZE);
+
+                if (read > 0)
+                {
+                    queue.put((read == CHUNK_SIZE) ? buffer : Arrays.copyOf(buffer, read));
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            failure = e;
+        }
+        catch (InterruptedException e)
+        {
+            // the stream was closed while waiting for room in the queue; nothing further will be read
+        }
+        finally
+        {
+            try
+            {
+                source.close();
+            }
+            catch (IOException e)
+            {
+                if (failure == null)
+                {
+                    failure = e;
+                }
+            }
+
+            if (!closed)
+            {
+                try
+                {
+                    queue.put(END);
+                }
+                catch (InterruptedException e)
+                {
+                    // closed while waiting; the reader no longer needs the end marker
+                }
+            }
+        }
+    }
+
+    /*
+     * Makes the next chunk current if the current one has been consumed; returns false at the end of the source
+     */
+    private boolean fill() throws IOException
+    {
+        if (closed)
+        {
+            throw new IOException("Stream closed");
+        }
+
+        while (chunk != END && next == chunk.length)
+        {
+            try
+            {
+                chunk = queue.take();
+                next = 0;
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for input", e);
+            }
+        }
+
+        if (chunk == END)
+        {
+            if (failure != null)
+            {
+                throw failure;
+            }
+
+            return false;
+        }
+
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException
+    {
+        if (!fill())
+        {
+            return -1;
+        }
+
+        return chunk[next++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] _buffer, int _offset, int _length) throws IOException
+    {
+        if (_length == 0)
+        {
+            return 0;
+        }
+
+        if (!fill())
+        {
+            return -1;
+        }
+
+        int count = Math.min(_length, chunk.length - next);
+        System.arraycopy(chunk, next, _buffer, _offset, count);
+        next += count;
+
+        return count;
+    }
+
+    @Override
+    public int available()
+    {
+        return (chunk == END) ? 0 : chunk.length - next;
+    }
+
+    /**
+     * Stops the reading thread, waits for it to close the source, and discards any bytes not yet read.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        if (!closed)
+        {
+            closed = true;
+            producer.interrupt();
+
+            try
+            {
+                producer.join();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+
+            queue.clear();
+        }
+    }
+}
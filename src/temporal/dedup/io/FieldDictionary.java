@@ -0,0 +1,215 @@
+package temporal.dedup.io;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Dictionary of the distinct values seen in a single column. Each distinct value is assigned a dense integer code in
+ * the order it is first encountered and is materialized as a String exactly once, so every record holding the value
+ * shares the same String instance.
+ * 
+ * Values may be encoded straight from the raw bytes of a buffer. For ASCII values (the common case for tab-delimited
+ * data) the bytes are hashed and compared in place against the existing values, so a value that has been seen before
+ * costs no allocation at all. Values holding non-ASCII bytes are decoded first with the dictionary's charset.
+ */
+public class FieldDictionary
+{
+    private static final int INITIAL_CAPACITY = 16;
+
+    /*
+     * Open-addressed hash table from slot to (code + 1); zero marks an empty slot
+     */
+    private int[] table;
+
+    /*
+     * Distinct values and their hashes, indexed by code
+     */
+    private String[] values;
+    private int[] hashes;
+    private int size;
+
+    private Charset charset;
+
+    public FieldDictionary(Charset _charset)
+    {
+        charset = _charset;
+        table = new int[INITIAL_CAPACITY * 2];
+        values = new String[INITIAL_CAPACITY];
+        hashes = new int[INITIAL_CAPACITY];
+        size = 0;
+    }
+
+    /**
+     * Returns the code of the value held in _length bytes of _buffer starting at absolute index _offset, adding the
+     * value to the dictionary if it has not been seen before. The buffer's position is not modified.
+     * 
+     * @param _buffer buffer holding the raw value
+     * @param _offset absolute index of the first byte of the value
+     * @param _length number of bytes in the value
+     * @return code of the value
+     */
+    public int encode(ByteBuffer _buffer, int _offset, int _length)
+    {
+        // hash the bytes as String.hashCode would hash the equivalent characters, as long as they are ASCII
+        int hash = 0;
+        boolean ascii = true;
+
+        for (int i = 0; i < _length && ascii; ++i)
+        {
+            byte b = _buffer.get(_offset + i);
+            hash = 31 * hash + b;
+            ascii = b >= 0;
+        }
+
+        if (!ascii)
+        {
+            byte[] bytes = new byte[_length];
+            _buffer.get(_offset, bytes, 0, _length);
+
+            return encode(new String(bytes, charset));
+        }
+
+        int mask = table.length - 1;
+        for (int slot = spread(hash) & mask; table[slot] != 0; slot = (slot + 1) & mask)
+        {
+            int code = table[slot] - 1;
+
+            if (hashes[code] == hash && asciiEquals(values[code], _buffer, _offset, _length))
+            {
+                return code;
+            }
+        }
+
+        byte[] bytes = new byte[_length];
+        _buffer.get(_offset, bytes, 0, _length);
+
+        return insert(new String(bytes, charset), hash);
+    }
+
+    /**
+     * Returns the code of the given value, adding the value to the dictionary if it has not been seen before.
+     * 
+     * @param _value value to encode
+     * @return code of the value
+     */
+    public int encode(String _value)
+    {
+        int hash = _value.hashCode();
+
+        int mask = table.length - 1;
+        for (int slot = spread(hash) & mask; table[slot] != 0; slot = (slot + 1) & mask)
+        {
+            int code = table[slot] - 1;
+
+            if (hashes[code] == hash && values[code].equals(_value))
+            {
+                return code;
+            }
+        }
+
+        return insert(_value, hash);
+    }
+
+    /**
+     * Returns the value assigned the given code.
+     * 
+     * @param _code code returned by encode
+     * @return the value
+     */
+    public String decode(int _code)
+    {
+        return values[_code];
+    }
+
+    /**
+     * Returns the number of distinct values in the dictionary.
+     * 
+     * @return number of distinct values
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /*
+     * Adds a value that is known not to be in the dictionary yet and returns its new code
+     */
+    private int insert(String _value, int _hash)
+    {
+        if (size == values.length)
+        {
+            grow();
+        }
+
+        int code = size++;
+        values[code] = _value;
+        hashes[code] = _hash;
+        place(code);
+
+        return code;
+    }
+
+    /*
+     * Doubles the capacity of the dictionary, keeping the hash table at most half full
+     */
+    private void grow()
+    {
+        String[] newValues = new String[values.length * 2];
+        int[] newHashes = new int[values.length * 2];
+        System.arraycopy(values, 0, newValues, 0, size);
+        System.arraycopy(hashes, 0, newHashes, 0, size);
+        values = newValues;
+        hashes = newHashes;
+
+        table = new int[values.length * 2];
+        for (int code = 0; code < size; ++code)
+        {
+            place(code);
+        }
+    }
+
+    /*
+     * Places the given code in the first free slot for its hash
+     */
+    private void place(int _code)
+    {
+        int mask = table.length - 1;
+        int slot = spread(hashes[_code]) & mask;
+
+        while (table[slot] != 0)
+        {
+            slot = (slot + 1) & mask;
+        }
+
+        table[slot] = _code + 1;
+    }
+
+    /*
+     * Mixes the high bits of the hash into the low bits used to pick a slot
+     */
+    private static int spread(int _hash)
+    {
+        return _hash ^ (_hash >>> 16);
+    }
+
+    /*
+     * Compares a String against ASCII bytes held in a buffer without decoding the bytes
+     */
+    private static boolean asciiEquals(String _value, ByteBuffer _buffer, int _offset, int _length)
+    {
+        if (_value.length() != _length)
+        {
+            return false;
+        }
+
+        for (int i = 0; i < _length; ++i)
+        {
+            if (_value.charAt(i) != _buffer.get(_offset + i))
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,210 @@
+package temporal.dedup.io;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Opens input files, to include compressed input files, for reading as text. An input is named by one of:
+ * 
+ * - a path to a plain file
+ * - a path to a gzip file, ending with ".gz"
+ * - a path to a zip archive followed by "!" and the name of an entry within it (e.g.
+ * "datasets/covid_19_dataset.zip!covid_19_truth_data.txt"); the entry name may be given in full or as the part
+ * following its last "/". A zip archive holding a single file may be named without an entry.
+ * 
+ * Compressed inputs are decompressed on a separate thread as they are read (see BackgroundInputStream); no decompressed
+ * copy is written to disk.
+ */
+public class InputSources
+{
+    private static final String GZIP_EXTENSION = ".gz";
+    private static final String ZIP_EXTENSION = ".zip";
+    private static final String ZIP_ENTRY_SEPARATOR = "!";
+
+    /**
+     * Determines whether the given input is compressed, in which case it may only be read as a stream (and not, for
+     * example, through a memory-mapped window).
+     * 
+     * @param _source input name
+     * @return true if the input is a gzip file or an entry of a zip archive
+     */
+    public static boolean isCompressed(String _source)
+    {
+        return isGzip(_source) || getZipArchive(_source) != null;
+    }
+
+    /**
+     * Returns the name of the file the given input decompresses to: the entry name (without its directory) for a zip
+     * entry, the path without ".gz" for a gzip file, or the input name itself for a plain file. Useful for naming files
+     * derived from the input.
+     * 
+     * @param _source input name
+     * @return name of the uncompressed input
+     */
+    public static String getUncompressedName(String _source)
+    {
+        String name = _source;
+
+        if (getZipArchive(_source) != null)
+        {
+            int separator = _source.indexOf(ZIP_ENTRY_SEPARATOR);
+            name = (separator >= 0) ? _source.substring(separator + 1) : _source.substring(0,
+                    _source.length() - ZIP_EXTENSION.length());
+            name = name.substring(name.lastIndexOf('/') + 1);
+        }
+        else if (isGzip(_source))
+        {
+            name = _source.substring(0, _source.length() - GZIP_EXTENSION.length());
+        }
+
+        return name;
+    }
+
+    /**
+     * Opens the given input for reading as text in the platform's default charset, as FileReader would.
+     * 
+     * @param _source input name
+     * @return reader of the (decompressed) input
+     * @throws IOException if the input does not exist or can not be opened
+     */
+    public static BufferedReader openReader(String _source) throws IOException
+    {
+        if (!isCompressed(_source))
+        {
+            return new BufferedReader(new FileReader(_source));
+        }
+
+        return new BufferedReader(new InputStreamReader(openStream(_source), Charset.defaultCharset()));
+    }
+
+    /**
+     * Opens the given input for reading as bytes. Compressed inputs are decompressed on a separate thread.
+     * 
+     * @param _source input name
+     * @return stream of the (decompressed) input
+     * @throws IOException if the input does not exist or can not be opened
+     */
+    public static InputStream openStream(String _source) throws IOException
+    {
+        String archive = getZipArchive(_source);
+
+        if (archive != null)
+        {
+            return new BackgroundInputStream(openZipEntry(archive, getZipEntry(_source)), _source);
+        }
+        else if (isGzip(_source))
+        {
+            return new BackgroundInputStream(new GZIPInputStream(new FileInputStream(_source), 1 << 16), _source);
+        }
+
+        return new FileInputStream(_source);
+    }
+
+    private static boolean isGzip(String _source)
+    {
+        return _source.toLowerCase().endsWith(GZIP_EXTENSION);
+    }
+
+    /*
+     * Returns the path of the zip archive named by the input, or null if the input is not within a zip archive
+     */
+    private static String getZipArchive(String _source)
+    {
+        int separator = _source.indexOf(ZIP_ENTRY_SEPARATOR);
+        String archive = (separator >= 0) ? _source.substring(0, separator) : _source;
+
+        return archive.toLowerCase().endsWith(ZIP_EXTENSION) ? archive : null;
+    }
+
+    /*
+     * Returns the entry name given with a zip input, or null if none was given
+     */
+    private static String getZipEntry(String _source)
+    {
+        int separator = _source.indexOf(ZIP_ENTRY_SEPARATOR);
+
+        return (separator >= 0) ? _source.substring(separator + 1) : null;
+    }
+
+    /*
+     * Opens the named entry of a zip archive (or its only file when _entryName is null); the archive is closed along
+     * with the returned stream
+     */
+    private static InputStream openZipEntry(String _archive, String _entryName) throws IOException
+    {
+        final ZipFile zip = new ZipFile(_archive);
+
+        try
+        {
+            ZipEntry entry = findZipEntry(zip, _entryName);
+
+            return new FilterInputStream(zip.getInputStream(entry))
+            {
+                @Override
+                public void close() throws IOException
+                {
+                    try
+                    {
+                        super.close();
+                    }
+                    finally
+                    {
+                        zip.close();
+                    }
+                }
+            };
+        }
+        catch (IOException e)
+        {
+            zip.close();
+            throw e;
+        }
+    }
+
+    /*
+     * Finds the entry whose full name, or name following its last "/", is _entryName; when _entryName is null, finds
+     * the archive's only file entry
+     */
+    private static ZipEntry findZipEntry(ZipFile _zip, String _entryName) throws IOException
+    {
+        ArrayList<ZipEntry> candidates = new ArrayList<ZipEntry>();
+        Enumeration<? extends ZipEntry> entries = _zip.entries();
+
+        while (entries.hasMoreElements())
+        {
+            ZipEntry entry = entries.nextElement();
+            String name = entry.getName();
+
+            if (entry.isDirectory())
+            {
+                continue;
+            }
+
+            if (_entryName == null || name.equals(_entryName) || name.endsWith("/" + _entryName))
+            {
+                candidates.add(entry);
+            }
+        }
+
+        if (candidates.size() != 1)
+        {
+            String wanted = (_entryName == null) ? "a single file" : "exactly one entry named " + _entryName;
+            throw new FileNotFoundException(_zip.getName() + " does not hold " + wanted + "; found " + candidates.size()
+                    + " candidates (name an entry as archive.zip" + ZIP_ENTRY_SEPARATOR + "entry)");
+        }
+
+        return candidates.get(0);
+    }
+}
@@ -0,0 +1,457 @@
+package temporal.dedup.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads a tab-delimited file through a memory-mapped window rather than a character stream. Line and field delimiters
+ * are found by scanning the mapped bytes directly, and a line is never copied or decoded as a whole. Each field is
+ * only materialized when it is asked for, through a per-column FieldDictionary, so a value that repeats down a column
+ * is decoded once and shared by every row holding it.
+ * 
+ * Lines and fields are split the same way BufferedReader.readLine followed by String.split("\t") would split them:
+ * lines end at "\n", "\r\n" or "\r", and trailing empty fields are dropped from a line that holds at least one tab.
+ * 
+ * Files larger than the mapping window are read through successive windows, each starting at the beginning of the
+ * first line not yet read. A reader may also be confined to a range of the file that starts and ends on line
+ * boundaries (see findLineBoundaries), so that separate ranges may be read concurrently by separate readers.
+ * Limitation: the file's charset must encode tab, carriage return and newline as single bytes
+ * (e.g. UTF-8 or ISO-8859-1), and no line may be longer than the mapping window.
+ */
+public class MappedTsvReader implements Closeable
+{
+    /*
+     * Largest region of the file mapped at once
+     */
+    private static final int WINDOW_SIZE = 1 << 28;
+
+    private FileChannel channel;
+    private Charset charset;
+
+    /*
+     * File offset just past the last byte this reader may read
+     */
+    private long end;
+
+    /*
+     * Currently mapped region of the file; windowStart is the file offset of the window's first byte
+     */
+    private MappedByteBuffer window;
+    private long windowStart;
+
+    /*
+     * Window index of the first byte of the next line
+     */
+    private int next;
+
+    /*
+     * Whether the previous line ended with a \r in the last byte of its window, in which case a \n at the start of the
+     * next window belongs to that line's terminator
+     */
+    private boolean pendingCarriageReturn;
+
+    /*
+     * Window indices of the current line and of its fields (end indices are exclusive)
+     */
+    private int lineStart;
+    private int lineEnd;
+    private int[] fieldStarts;
+    private int[] fieldEnds;
+    private int numFields;
+    private boolean fieldsSplit;
+
+    private FieldDictionary[] dictionaries;
+
+    public MappedTsvReader(String _file) throws IOException
+    {
+        this(_file, Charset.defaultCharset());
+    }
+
+    public MappedTsvReader(String _file, Charset _charset) throws IOException
+    {
+        this(_file, _charset, 0, Long.MAX_VALUE);
+    }
+
+    /**
+     * Creates a reader confined to the given range of the file. Both ends of the range must fall on line boundaries.
+     * 
+     * @param _file    file to read
+     * @param _charset charset of the file
+     * @param _start   file offset of the first byte to read
+     * @param _end     file offset just past the last byte to read; clamped to the size of the file
+     * @throws IOException if the file can not be opened or mapped
+     */
+    public MappedTsvReader(String _file, Charset _charset, long _start, long _end) throws IOException
+    {
+        channel = FileChannel.open(Paths.get(_file), StandardOpenOption.READ);
+        end = Math.min(_end, channel.size());
+        charset = _charset;
+
+        fieldStarts = new int[64];
+        fieldEnds = new int[64];
+        numFields = 0;
+        fieldsSplit = true;
+        dictionaries = new FieldDictionary[0];
+        pendingCarriageReturn = false;
+
+        map(Math.min(_start, end));
+    }
+
+    /**
+     * Advances to the next line of the file.
+     * 
+     * @return true if a line was read; false at the end of the file
+     * @throws IOException if the file can not be mapped or a line is longer than the mapping window
+     */
+    public boolean nextLine() throws IOException
+    {
+        resolvePendingCarriageReturn();
+
+        if (windowStart + next >= end)
+        {
+            return false;
+        }
+
+        int terminator = findLineTerminator();
+
+        // the line runs past the end of the window; map a new window starting at the line
+        if (terminator < 0)
+        {
+            map(windowStart + next);
+            terminator = findLineTerminator();
+
+            if (terminator < 0)
+            {
+                throw new IOException("Line at offset " + windowStart + " is longer than " + WINDOW_SIZE + " bytes");
+            }
+        }
+
+        lineStart = next;
+        lineEnd = terminator;
+        next = terminator;
+
+        if (next < window.limit())
+        {
+            // step over the terminator, treating \r\n as a single terminator
+            if (window.get(next++) == '\r')
+            {
+                if (next == window.limit())
+                {
+                    pendingCarriageReturn = true;
+                }
+                else if (window.get(next) == '\n')
+                {
+                    ++next;
+                }
+            }
+        }
+
+        // the fields are only found once they are asked for
+        fieldsSplit = false;
+
+        return true;
+    }
+
+    /**
+     * Returns the file offset of the first line not yet read.
+     * 
+     * @return file offset of the next line
+     * @throws IOException if the file can not be mapped
+     */
+    public long getPosition() throws IOException
+    {
+        resolvePendingCarriageReturn();
+
+        return windowStart + next;
+    }
+
+    /*
+     * If the previous line ended with a \r in the last byte of its window, steps over a \n at the start of the next
+     * window
+     */
+    private void resolvePendingCarriageReturn() throws IOException
+    {
+        if (pendingCarriageReturn)
+        {
+            pendingCarriageReturn = false;
+
+            if (windowStart + next < end)
+            {
+                map(windowStart + next);
+
+                if (window.get(next) == '\n')
+                {
+                    ++next;
+                }
+            }
+        }
+    }
+
+    /*
+     * Returns the window index of the terminator of the line starting at next, the window limit if the line runs to
+     * the end of the file, or -1 if the line runs past the end of the window
+     */
+    private int findLineTerminator()
+    {
+        int limit = window.limit();
+        boolean lastWindow = windowStart + limit >= end;
+
+        for (int i = next; i < limit; ++i)
+        {
+            byte b = window.get(i);
+
+            if (b == '\n' || b == '\r')
+            {
+                return i;
+            }
+        }
+
+        return lastWindow ? limit : -1;
+    }
+
+    /*
+     * Finds the fields of the current line, dropping trailing empty fields as String.split does
+     */
+    private void splitFields()
+    {
+        fieldsSplit = true;
+        numFields = 0;
+        int start = lineStart;
+        boolean anyTab = false;
+
+        for (int i = lineStart; i < lineEnd; ++i)
+        {
+            if (window.get(i) == '\t')
+            {
+                addField(start, i);
+                start = i + 1;
+                anyTab = true;
+            }
+        }
+        addField(start, lineEnd);
+
+        if (anyTab)
+        {
+            while (numFields > 0 && fieldEnds[numFields - 1] == fieldStarts[numFields - 1])
+            {
+                --numFields;
+            }
+        }
+    }
+
+    private void addField(int _start, int _end)
+    {
+        if (numFields == fieldStarts.length)
+        {
+            fieldStarts = Arrays.copyOf(fieldStarts, numFields * 2);
+            fieldEnds = Arrays.copyOf(fieldEnds, numFields * 2);
+        }
+
+        fieldStarts[numFields] = _start;
+        fieldEnds[numFields] = _end;
+        ++numFields;
+    }
+
+    /*
+     * Maps the window starting at the given file offset
+     */
+    private void map(long _start) throws IOException
+    {
+        long size = Math.min(WINDOW_SIZE, end - _start);
+
+        window = channel.map(FileChannel.MapMode.READ_ONLY, _start, size);
+        windowStart = _start;
+        next = 0;
+    }
+
+    /**
+     * Returns the number of fields on the current line.
+     * 
+     * @return number of fields
+     */
+    public int getNumFields()
+    {
+        if (!fieldsSplit)
+        {
+            splitFields();
+        }
+
+        return numFields;
+    }
+
+    /**
+     * Returns the value of the given field of the current line. Equal values within a column are returned as the same
+     * String instance.
+     * 
+     * @param _index field index; must be less than getNumFields()
+     * @return field value
+     */
+    public String getField(int _index)
+    {
+        FieldDictionary dictionary = getDictionary(_index);
+
+        return dictionary.decode(getFieldCode(_index));
+    }
+
+    /**
+     * Returns the code of the given field of the current line within the dictionary of its column.
+     * 
+     * @param _index field index; must be less than getNumFields()
+     * @return code of the field value within getDictionary(_index)
+     */
+    public int getFieldCode(int _index)
+    {
+        return getFieldCode(_index, getDictionary(_index));
+    }
+
+    /**
+     * Returns the code of the given field of the current line within the given dictionary, e.g. the dictionary of the
+     * column within a ColumnStore.
+     * 
+     * @param _index      field index; must be less than getNumFields()
+     * @param _dictionary dictionary to encode the field value in
+     * @return code of the field value within _dictionary
+     */
+    public int getFieldCode(int _index, FieldDictionary _dictionary)
+    {
+        if (!fieldsSplit)
+        {
+            splitFields();
+        }
+
+        return _dictionary.encode(window, fieldStarts[_index], fieldEnds[_index] - fieldStarts[_index]);
+    }
+
+    /**
+     * Returns the dictionary of the values seen so far in the given column.
+     * 
+     * @param _index column index
+     * @return dictionary of the column
+     */
+    public FieldDictionary getDictionary(int _index)
+    {
+        if (_index >= dictionaries.length)
+        {
+            int oldLength = dictionaries.length;
+            dictionaries = Arrays.copyOf(dictionaries, Math.max(_index + 1, oldLength * 2));
+
+            for (int i = oldLength; i < dictionaries.length; ++i)
+            {
+                dictionaries[i] = new FieldDictionary(charset);
+            }
+        }
+
+        return dictionaries[_index];
+    }
+
+    /**
+     * Decodes and returns the current line in full, without its terminator.
+     * 
+     * @return the current line
+     */
+    public String getLine()
+    {
+        byte[] bytes = new byte[lineEnd - lineStart];
+        window.get(lineStart, bytes, 0, bytes.length);
+
+        return new String(bytes, charset);
+    }
+
+    /**
+     * Divides the part of the file starting at _start into (at most) _numChunks ranges of roughly equal size, each of
+     * which starts and ends on a line boundary. Ranges are returned as boundary offsets: range i runs from element i
+     * (inclusive) to element i + 1 (exclusive), and the last element is the size of the file. Ranges that would be
+     * empty are left out, so fewer than _numChunks ranges may be returned.
+     * 
+     * @param _file      file to divide
+     * @param _start     file offset of the first line to include; must fall on a line boundary
+     * @param _numChunks number of ranges desired
+     * @return ascending boundary offsets of the ranges
+     * @throws IOException if the file can not be read
+     */
+    public static long[] findLineBoundaries(String _file, long _start, int _numChunks) throws IOException
+    {
+        FileChannel channel = FileChannel.open(Paths.get(_file), StandardOpenOption.READ);
+        long size = channel.size();
+        long chunkSize = Math.max(1, (size - _start) / Math.max(1, _numChunks));
+
+        long[] boundaries = new long[_numChunks + 1];
+        int numBoundaries = 0;
+        boundaries[numBoundaries++] = Math.min(_start, size);
+
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+
+        for (int c = 1; c < _numChunks; ++c)
+        {
+            long previous = boundaries[numBoundaries - 1];
+            long boundary = nextLineStart(channel, buffer, Math.max(previous, _start + c * chunkSize));
+
+            if (boundary > previous && boundary < size)
+            {
+                boundaries[numBoundaries++] = boundary;
+            }
+        }
+
+        if (boundaries[numBoundaries - 1] < size)
+        {
+            boundaries[numBoundaries++] = size;
+        }
+
+        channel.close();
+
+        return Arrays.copyOf(boundaries, numBoundaries);
+    }
+
+    /*
+     * Returns the file offset of the start of the first line that begins after the terminator found at or after
+     * _from, or the size of the file if there is none
+     */
+    private static long nextLineStart(FileChannel _channel, ByteBuffer _buffer, long _from) throws IOException
+    {
+        long size = _channel.size();
+        long offset = _from;
+        boolean carriageReturn = false;
+
+        while (offset < size)
+        {
+            _buffer.clear();
+            int read = _channel.read(_buffer, offset);
+
+            for (int i = 0; i < read; ++i)
+            {
+                byte b = _buffer.get(i);
+
+                if (carriageReturn)
+                {
+                    // a \r ends the line; a \n directly after it belongs to the same terminator
+                    return (b == '\n') ? offset + i + 1 : offset + i;
+                }
+                else if (b == '\n')
+                {
+                    return offset + i + 1;
+                }
+                else if (b == '\r')
+                {
+                    carriageReturn = true;
+                }
+            }
+
+            offset += read;
+        }
+
+        return size;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        channel.close();
+    }
+}
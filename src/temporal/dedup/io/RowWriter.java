@@ -0,0 +1,155 @@
+package temporal.dedup.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes a text file one row at a time. Each row is built in a single StringBuilder that is reused for every row,
+ * encoded into a large byte buffer and written to the file's channel only when the buffer fills, so writing a row
+ * creates no intermediate Strings and the file sees a small number of large writes.
+ * 
+ * Rows are terminated and encoded as PrintWriter.println would terminate and encode them: with the platform line
+ * separator, and with malformed or unmappable characters replaced.
+ */
+public class RowWriter implements Closeable
+{
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    private FileChannel channel;
+    private CharsetEncoder encoder;
+    private ByteBuffer bytes;
+
+    /*
+     * Row under construction, and the characters of the row as handed to the encoder
+     */
+    private StringBuilder row;
+    private char[] chars;
+
+    public RowWriter(String _file) throws IOException
+    {
+        this(_file, Charset.defaultCharset());
+    }
+
+    /**
+     * Creates (or truncates) the given file.
+     * 
+     * @param _file    file to write
+     * @param _charset charset to encode the rows with
+     * @throws IOException if the file can not be opened for writing
+     */
+    public RowWriter(String _file, Charset _charset) throws IOException
+    {
+        channel = FileChannel.open(Paths.get(_file), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        encoder = _charset.newEncoder().onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        bytes = ByteBuffer.allocate(BUFFER_SIZE);
+        row = new StringBuilder(1024);
+        chars = new char[1024];
+    }
+
+    /**
+     * Starts a new row, returning the (emptied) builder the row is to be appended to. The row is written by endRow.
+     * 
+     * @return builder for the row
+     */
+    public StringBuilder startRow()
+    {
+        row.setLength(0);
+
+        return row;
+    }
+
+    /**
+     * Terminates the row built since startRow and writes it.
+     * 
+     * @throws IOException if the file can not be written
+     */
+    public void endRow() throws IOException
+    {
+        row.append(LINE_SEPARATOR);
+
+        int length = row.length();
+        if (length > chars.length)
+        {
+            chars = new char[Math.max(length, chars.length * 2)];
+        }
+        row.getChars(0, length, chars, 0);
+
+        encode(CharBuffer.wrap(chars, 0, length), false);
+    }
+
+    /**
+     * Writes the given text as a complete row.
+     * 
+     * @param _row text of the row
+     * @throws IOException if the file can not be written
+     */
+    public void writeRow(CharSequence _row) throws IOException
+    {
+        startRow().append(_row);
+        endRow();
+    }
+
+    /*
+     * Encodes the characters into the byte buffer, draining the buffer to the channel whenever it fills
+     */
+    private void encode(CharBuffer _chars, boolean _endOfInput) throws IOException
+    {
+        CoderResult result = encoder.encode(_chars, bytes, _endOfInput);
+
+        while (result.isOverflow())
+        {
+            drain();
+            result = encoder.encode(_chars, bytes, _endOfInput);
+        }
+    }
+
+    /*
+     * Writes the contents of the byte buffer to the channel
+     */
+    private void drain() throws IOException
+    {
+        bytes.flip();
+
+        while (bytes.hasRemaining())
+        {
+            channel.write(bytes);
+        }
+
+        bytes.clear();
+    }
+
+    /**
+     * Writes any buffered rows and closes the file.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        try
+        {
+            encode(CharBuffer.allocate(0), true);
+
+            while (encoder.flush(bytes).isOverflow())
+            {
+                drain();
+            }
+
+            drain();
+        }
+        finally
+        {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package temporal.dedup.io;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Constants and primitive encodings shared by the writers and readers of a dataset snapshot. A snapshot is a binary
+ * image of a parsed dataset along with the results of the up-front inferences (logical attributes, key and record
+ * type), so that a dataset may be reloaded without parsing the raw file or repeating the inferences.
+ *
+ * A snapshot starts with MAGIC followed by VERSION. VERSION must be incremented whenever the layout of anything written
+ * to a snapshot changes, as a snapshot is only ever read by the version that wrote it.
+ */
+public class SnapshotFormat
+{
+    public static final int MAGIC = 0x54445350; // "TDSP"
+    public static final int VERSION = 2;
+
+    /*
+     * Number of ints encoded at once when writing or reading an int array
+     */
+    private static final int INT_BLOCK = 8192;
+
+    /**
+     * Writes the snapshot header.
+     *
+     * @param _out stream to write to
+     * @throws IOException
+     */
+    public static void writeHeader(DataOutputStream _out) throws IOException
+    {
+        _out.writeInt(MAGIC);
+        _out.writeInt(VERSION);
+    }
+
+    /**
+     * Reads and checks the snapshot header.
+     *
+     * @param _in stream to read from
+     * @throws IOException if the stream is not a snapshot or was written by another version
+     */
+    public static void readHeader(DataInputStream _in) throws IOException
+    {
+        if (_in.readInt() != MAGIC)
+        {
+            throw new IOException("Not a TemporalDedup snapshot");
+        }
+
+        int version = _in.readInt();
+        if (version != VERSION)
+        {
+            throw new IOException("Unsupported snapshot version " + version + "; expected version " + VERSION);
+        }
+    }
+
+    /**
+     * Writes a string of any length as its UTF-8 byte count followed by its UTF-8 bytes.
+     *
+     * @param _out   stream to write to
+     * @param _value string to write
+     * @throws IOException
+     */
+    public static void writeString(DataOutputStream _out, String _value) throws IOException
+    {
+        byte[] bytes = _value.getBytes(StandardCharsets.UTF_8);
+        _out.writeInt(bytes.length);
+        _out.write(bytes);
+    }
+
+    /**
+     * Reads a string written by writeString.
+     *
+     * @param _in stream to read from
+     * @return the string
+     * @throws IOException
+     */
+    public static String readString(DataInputStream _in) throws IOException
+    {
+        byte[] bytes = new byte[_in.readInt()];
+        _in.readFully(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes the first _length elements of _values, in blocks rather than one int at a time.
+     *
+     * @param _out    stream to write to
+     * @param _values values to write
+     * @param _length number of values to write
+     * @throws IOException
+     */
+    public static void writeInts(DataOutputStream _out, int[] _values, int _length) throws IOException
+    {
+        ByteBuffer block = ByteBuffer.allocate(INT_BLOCK * Integer.BYTES);
+
+        for (int i = 0; i < _length; i += INT_BLOCK)
+        {
+            int count = Math.min(INT_BLOCK, _length - i);
+            block.clear();
+            block.asIntBuffer().put(_values, i, count);
+            _out.write(block.array(), 0, count * Integer.BYTES);
+        }
+    }
+
+    /**
+     * Reads _length ints written by writeInts into the start of _values.
+     *
+     * @param _in     stream to read from
+     * @param _values array to read into
+     * @param _length number of values to read
+     * @throws IOException
+     */
+    public static void readInts(DataInputStream _in, int[] _values, int _length) throws IOException
+    {
+        ByteBuffer block = ByteBuffer.allocate(INT_BLOCK * Integer.BYTES);
+
+        for (int i = 0; i < _length; i += INT_BLOCK)
+        {
+            int count = Math.min(INT_BLOCK, _length - i);
+            _in.readFully(block.array(), 0, count * Integer.BYTES);
+            block.clear();
+            block.asIntBuffer().get(_values, i, count);
+        }
+    }
+}
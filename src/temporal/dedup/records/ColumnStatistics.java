@@ -0,0 +1,92 @@
+package temporal.dedup.records;
+
+/**
+ * Statistics of the values held by a single column, or a pair of columns, across every row of a ColumnStore: the number
+ * of distinct values, the number of null values and the most frequent values. A null value is a position beyond the end
+ * of a row or a value holding nothing but whitespace; for a pair, a row is null when either of its values is.
+ * 
+ * Nulls are counted amongst the distinct values (all nulls of a column being the same value only if they are the same
+ * raw value), as the key and record type inferences have always counted them.
+ */
+public class ColumnStatistics
+{
+    private int numRows;
+    private int distinctCount;
+    private int nullCount;
+    private String[] topValues;
+    private int[] topCounts;
+
+    /**
+     * @param _numRows       number of rows the statistics were gathered over
+     * @param _distinctCount number of distinct values
+     * @param _nullCount     number of rows holding a null value
+     * @param _topValues     most frequent values, most frequent first
+     * @param _topCounts     number of rows holding each of the most frequent values
+     */
+    public ColumnStatistics(int _numRows, int _distinctCount, int _nullCount, String[] _topValues, int[] _topCounts)
+    {
+        numRows = _numRows;
+        distinctCount = _distinctCount;
+        nullCount = _nullCount;
+        topValues = _topValues;
+        topCounts = _topCounts;
+    }
+
+    public int getNumRows()
+    {
+        return numRows;
+    }
+
+    public int getDistinctCount()
+    {
+        return distinctCount;
+    }
+
+    public int getNullCount()
+    {
+        return nullCount;
+    }
+
+    /**
+     * Determines whether every row holds a different value.
+     * 
+     * @return true if the column (or pair) is unique amongst the rows
+     */
+    public boolean isUnique()
+    {
+        return distinctCount == numRows;
+    }
+
+    /**
+     * Returns the number of most frequent values held (no more than StatisticsCatalog.NUM_TOP_VALUES).
+     * 
+     * @return number of top values
+     */
+    public int getNumTopValues()
+    {
+        return topValues.length;
+    }
+
+    /**
+     * Returns one of the most frequent values; a pair's values are joined by " :: ". A position beyond the end of a row
+     * is given as an empty value.
+     * 
+     * @param _rank rank of the value, 0 being the most frequent
+     * @return the value
+     */
+    public String getTopValue(int _rank)
+    {
+        return topValues[_rank];
+    }
+
+    /**
+     * Returns the number of rows holding one of the most frequent values.
+     * 
+     * @param _rank rank of the value, 0 being the most frequent
+     * @return number of rows holding the value
+     */
+    public int getTopCount(int _rank)
+    {
+        return topCounts[_rank];
+    }
+}
@@ -0,0 +1,355 @@
+package temporal.dedup.records;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import temporal.dedup.io.FieldDictionary;
+import temporal.dedup.io.SnapshotFormat;
+
+/**
+ * Column-oriented store of the raw attribute values of every record. Each column (header position) is held as an
+ * int[] of dictionary codes, one per row, alongside a FieldDictionary of the column's distinct values. A value that
+ * repeats down a column, such as a game ID, summary type or boolean, is therefore stored once no matter how many
+ * records hold it, and two values within a column are equal exactly when their codes are equal.
+ * 
+ * Rows may hold differing numbers of values (trailing empty values are not stored); positions beyond the end of a row
+ * hold NO_VALUE. DataRecord is a view over a single row of a store.
+ */
+public class ColumnStore
+{
+    /**
+     * Code held by the positions beyond the end of a row
+     */
+    public static final int NO_VALUE = -1;
+
+    private static final int INITIAL_ROW_CAPACITY = 1024;
+
+    private Charset charset;
+    private FieldDictionary[] dictionaries;
+    private int[][] columns;
+    private int[] rowLengths;
+    private int numRows;
+
+    public ColumnStore()
+    {
+        this(Charset.defaultCharset());
+    }
+
+    /**
+     * @param _charset charset used by the column dictionaries to decode values encoded from raw bytes
+     */
+    public ColumnStore(Charset _charset)
+    {
+        charset = _charset;
+        dictionaries = new FieldDictionary[0];
+        columns = new int[0][];
+        rowLengths = new int[INITIAL_ROW_CAPACITY];
+        numRows = 0;
+    }
+
+    /**
+     * Returns the dictionary of the given column. Values may be encoded directly into the dictionary (e.g. from raw
+     * bytes, see MappedTsvReader) and their codes then added with addRow(int[], int).
+     * 
+     * @param _column column index
+     * @return dictionary of the column
+     */
+    public FieldDictionary getDictionary(int _column)
+    {
+        ensureColumns(_column + 1);
+
+        return dictionaries[_column];
+    }
+
+    /**
+     * Appends a row holding the first _numFields values of _fields.
+     * 
+     * @param _fields    raw attribute values
+     * @param _numFields number of values in the row
+     * @return row index
+     */
+    public int addRow(String[] _fields, int _numFields)
+    {
+        int row = startRow(_numFields);
+
+        for (int c = 0; c < _numFields; ++c)
+        {
+            columns[c][row] = dictionaries[c].encode(_fields[c]);
+        }
+
+        return row;
+    }
+
+    /**
+     * Appends a row holding the first _numFields codes of _codes. Each code must have been assigned by the dictionary of
+     * its column (see getDictionary).
+     * 
+     * @param _codes     dictionary codes of the raw attribute values
+     * @param _numFields number of values in the row
+     * @return row index
+     */
+    public int addRow(int[] _codes, int _numFields)
+    {
+        int row = startRow(_numFields);
+
+        for (int c = 0; c < _numFields; ++c)
+        {
+            columns[c][row] = _codes[c];
+        }
+
+        return row;
+    }
+
+    /**
+     * Appends every row of _other to this store, translating the codes of _other's dictionaries into codes of this
+     * store's dictionaries. Each distinct value of _other is looked up once, so appending costs one dictionary lookup
+     * per distinct value and one array lookup per stored value.
+     * 
+     * @param _other store to append
+     * @return row index the first row of _other was appended at
+     */
+    public int append(ColumnStore _other)
+    {
+        int firstRow = numRows;
+        ensureColumns(_other.columns.length);
+        ensureRows(numRows + _other.numRows);
+        System.arraycopy(_other.rowLengths, 0, rowLengths, firstRow, _other.numRows);
+
+        for (int c = 0; c < _other.columns.length; ++c)
+        {
+            FieldDictionary otherDictionary = _other.dictionaries[c];
+            int[] translation = new int[otherDictionary.size()];
+
+            for (int code = 0; code < translation.length; ++code)
+            {
+                translation[code] = dictionaries[c].encode(otherDictionary.decode(code));
+            }
+
+            int[] column = columns[c];
+            int[] otherColumn = _other.columns[c];
+
+            for (int r = 0; r < _other.numRows; ++r)
+            {
+                int code = otherColumn[r];
+                column[firstRow + r] = (code == NO_VALUE) ? NO_VALUE : translation[code];
+            }
+        }
+
+        // columns this store has but _other does not are beyond the end of every appended row
+        for (int c = _other.columns.length; c < columns.length; ++c)
+        {
+            Arrays.fill(columns[c], firstRow, firstRow + _other.numRows, NO_VALUE);
+        }
+
+        numRows += _other.numRows;
+
+        return firstRow;
+    }
+
+    /**
+     * Writes the store to a snapshot: the distinct values of every column in code order followed by the codes of every
+     * row, so that a store read back assigns every value the same code.
+     * 
+     * @param _out snapshot stream
+     * @throws IOException
+     */
+    public void writeTo(DataOutputStream _out) throws IOException
+    {
+        _out.writeInt(columns.length);
+        _out.writeInt(numRows);
+        SnapshotFormat.writeInts(_out, rowLengths, numRows);
+
+        for (int c = 0; c < columns.length; ++c)
+        {
+            FieldDictionary dictionary = dictionaries[c];
+            _out.writeInt(dictionary.size());
+
+            for (int code = 0; code < dictionary.size(); ++code)
+            {
+                SnapshotFormat.writeString(_out, dictionary.decode(code));
+            }
+
+            SnapshotFormat.writeInts(_out, columns[c], numRows);
+        }
+    }
+
+    /**
+     * Reads a store written by writeTo.
+     * 
+     * @param _in snapshot stream
+     * @return the store
+     * @throws IOException
+     */
+    public static ColumnStore readFrom(DataInputStream _in) throws IOException
+    {
+        ColumnStore store = new ColumnStore();
+        int numColumns = _in.readInt();
+        int numRows = _in.readInt();
+
+        store.ensureColumns(numColumns);
+        store.ensureRows(numRows);
+        SnapshotFormat.readInts(_in, store.rowLengths, numRows);
+
+        for (int c = 0; c < numColumns; ++c)
+        {
+            // values were written in code order and are distinct, so encoding them in turn reassigns the same codes
+            int size = _in.readInt();
+            for (int code = 0; code < size; ++code)
+            {
+                store.dictionaries[c].encode(SnapshotFormat.readString(_in));
+            }
+
+            SnapshotFormat.readInts(_in, store.columns[c], numRows);
+        }
+
+        store.numRows = numRows;
+
+        return store;
+    }
+
+    /*
+     * Reserves the next row for _numFields values, marking the positions beyond them as NO_VALUE
+     */
+    private int startRow(int _numFields)
+    {
+        ensureColumns(_numFields);
+        ensureRows(numRows + 1);
+
+        int row = numRows++;
+        rowLengths[row] = _numFields;
+
+        for (int c = _numFields; c < columns.length; ++c)
+        {
+            columns[c][row] = NO_VALUE;
+        }
+
+        return row;
+    }
+
+    /*
+     * Grows the store to hold at least _numColumns columns; positions of existing rows in new columns hold NO_VALUE
+     */
+    private void ensureColumns(int _numColumns)
+    {
+        if (_numColumns > columns.length)
+        {
+            int oldLength = columns.length;
+            columns = Arrays.copyOf(columns, _numColumns);
+            dictionaries = Arrays.copyOf(dictionaries, _numColumns);
+
+            for (int c = oldLength; c < _numColumns; ++c)
+            {
+                columns[c] = new int[rowLengths.length];
+                Arrays.fill(columns[c], NO_VALUE);
+                dictionaries[c] = new FieldDictionary(charset);
+            }
+        }
+    }
+
+    /*
+     * Grows the capacity of every column to hold at least _numRows rows
+     */
+    private void ensureRows(int _numRows)
+    {
+        if (_numRows > rowLengths.length)
+        {
+            int capacity = Math.max(_numRows, rowLengths.length * 2);
+            rowLengths = Arrays.copyOf(rowLengths, capacity);
+
+            for (int c = 0; c < columns.length; ++c)
+            {
+                columns[c] = Arrays.copyOf(columns[c], capacity);
+            }
+        }
+    }
+
+    public int getNumRows()
+    {
+        return numRows;
+    }
+
+    public int getNumColumns()
+    {
+        return columns.length;
+    }
+
+    /**
+     * Returns the number of values held by the given row.
+     * 
+     * @param _row row index
+     * @return number of values in the row
+     */
+    public int getNumFields(int _row)
+    {
+        return rowLengths[_row];
+    }
+
+    /**
+     * Returns the dictionary code of the value at the given position, or NO_VALUE if the position is beyond the end of
+     * the row.
+     * 
+     * @param _row    row index
+     * @param _column column index
+     * @return dictionary code or NO_VALUE
+     */
+    public int getCode(int _row, int _column)
+    {
+        if (_column >= rowLengths[_row])
+        {
+            return NO_VALUE;
+        }
+
+        return columns[_column][_row];
+    }
+
+    /**
+     * Returns the value at the given position.
+     * 
+     * @param _row    row index
+     * @param _column column index
+     * @return raw attribute value
+     * @throws IndexOutOfBoundsException if the position is beyond the end of the row
+     */
+    public String getValue(int _row, int _column)
+    {
+        if (_column >= rowLengths[_row])
+        {
+            throw new IndexOutOfBoundsException("Index " + _column + " out of bounds for length " + rowLengths[_row]);
+        }
+
+        return dictionaries[_column].decode(columns[_column][_row]);
+    }
+
+    /**
+     * Determines whether two rows hold the same number of values and the same value at every position other than the
+     * two given positions. Values are compared by dictionary code only.
+     * 
+     * @param _row1    first row index
+     * @param _row2    second row index
+     * @param _ignore1 column index to skip, or -1
+     * @param _ignore2 column index to skip, or -1
+     * @return true if the rows match
+     */
+    public boolean rowsEqual(int _row1, int _row2, int _ignore1, int _ignore2)
+    {
+        int length = rowLengths[_row1];
+
+        if (length != rowLengths[_row2])
+        {
+            return false;
+        }
+
+        for (int c = 0; c < length; ++c)
+        {
+            if (c != _ignore1 && c != _ignore2 && columns[c][_row1] != columns[c][_row2])
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
@@ -1,5 +1,8 @@
 package temporal.dedup.records;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -7,10 +10,13 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Set;
 
+import temporal.dedup.io.SnapshotFormat;
+import temporal.dedup.utils.DuplicateClusters;
 import temporal.dedup.utils.LCS;
 
 /**
- * Data structure to represent all of the raw and aggregated information associated with a single data record.
+ * Data structure to represent all of the raw and aggregated information associated with a single data record. The raw
+ * attribute values are not held by the record itself; the record is a view over its row of a ColumnStore.
  */
 public class DataRecord
 {
@@ -31,10 +37,20 @@ public class DataRecord
      * so long as the other record also shares the global common record type
      */
     private final static String GLOBAL_RECORD_TYPE = "GlobalCommonRecordType";
+
+    /*
+     * 64-bit FNV-1a parameters used to fingerprint raw attribute values
+     */
+    private final static long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private final static long FNV_PRIME = 0x100000001b3L;
     
     private int id;
-    private ArrayList<String> rawAttributeValues;
+    private ColumnStore store;
+    private int row;
     private int populatedValueCount;
+    private long rowFingerprint;
+    private long nonKeyFingerprint;
+    private long keyFingerprint;
 
     private KeyAttribute key;
     private ArrayList<LogicalAttribute> logicalAttributes;
@@ -53,6 +69,7 @@ public class DataRecord
     private String eventSequence;
     private String eventSequenceConstrained;
     private String eventSequenceUnconstrained;
+    private int eventSequenceUnconstrainedLength;
     private boolean lcsAdhered;
     private int typeConstrainedLength;    
     private int typeUnconstrainedLength;
@@ -65,13 +82,20 @@ public class DataRecord
     private Set<Integer> integerSet;
     private boolean integerSetPopulated;
 
-    public DataRecord(int _id)
+    /**
+     * @param _id    record ID
+     * @param _store store holding the record's raw attribute values
+     * @param _row   row of the store holding the record's raw attribute values
+     */
+    public DataRecord(int _id, ColumnStore _store, int _row)
     {
         id = _id;
         key = new KeyAttribute();
         logicalAttributes = new ArrayList<LogicalAttribute>();
-        rawAttributeValues = new ArrayList<String>();
+        store = _store;
+        row = _row;
         populatedValueCount = 0;
+        rowFingerprint = nonKeyFingerprint = keyFingerprint = 0;
 
         recordType = "";
 
@@ -84,6 +108,7 @@ public class DataRecord
         eventSequence = "";
         eventSequenceConstrained = "";
         eventSequenceUnconstrained = "";
+        eventSequenceUnconstrainedLength = 1;
         lcsAdhered = true;
         typeConstrainedLength = typeUnconstrainedLength = recordConstrainedLength = recordUnconstrainedLength = 0;
 
@@ -104,8 +129,12 @@ public class DataRecord
         id = _copy.id;
         key = _copy.key;
         logicalAttributes = _copy.logicalAttributes;
-        rawAttributeValues = _copy.rawAttributeValues;
+        store = _copy.store;
+        row = _copy.row;
         populatedValueCount = _copy.populatedValueCount;
+        rowFingerprint = _copy.rowFingerprint;
+        nonKeyFingerprint = _copy.nonKeyFingerprint;
+        keyFingerprint = _copy.keyFingerprint;
         recordType = _copy.recordType;
         earliest = _copy.earliest;
         latest = _copy.latest;
@@ -117,6 +146,7 @@ public class DataRecord
         eventSequence = _copy.eventSequence;
         eventSequenceConstrained = _copy.eventSequenceConstrained;
         eventSequenceUnconstrained = _copy.eventSequenceUnconstrained;
+        eventSequenceUnconstrainedLength = _copy.eventSequenceUnconstrainedLength;
         lcsAdhered = _copy.lcsAdhered;
         typeConstrainedLength = _copy.typeConstrainedLength;
         typeUnconstrainedLength = _copy.typeUnconstrainedLength;
@@ -128,19 +158,99 @@ public class DataRecord
         integerSetPopulated = _copy.integerSetPopulated;
     }
     
+    /**
+     * Moves this view to a row of another store holding the same raw attribute values, e.g. once the store the record
+     * was parsed into has been appended to a larger store.
+     * 
+     * @param _store store now holding the record's raw attribute values
+     * @param _row   row of _store holding the record's raw attribute values
+     */
+    public void moveToStore(ColumnStore _store, int _row)
+    {
+        store = _store;
+        row = _row;
+    }
+
+    /**
+     * Writes the record's position within its store along with the aggregate fields established once the record was
+     * read and the key applied (logical attributes, timestamps, elapsed time, event sequence and fingerprints) to a
+     * snapshot. The key itself and the record type are common to every record and are not written.
+     * 
+     * @param _out snapshot stream
+     * @throws IOException
+     */
+    public void writeTo(DataOutputStream _out) throws IOException
+    {
+        _out.writeInt(id);
+        _out.writeInt(row);
+        _out.writeInt(populatedValueCount);
+        _out.writeLong(rowFingerprint);
+        _out.writeLong(nonKeyFingerprint);
+        _out.writeLong(keyFingerprint);
+        _out.writeLong(earliest);
+        _out.writeLong(latest);
+        _out.writeLong(elapsedTime);
+        _out.writeInt(timestampGranularity.ordinal());
+        SnapshotFormat.writeString(_out, eventSequence);
+
+        _out.writeInt(logicalAttributes.size());
+        for (int i = 0; i < logicalAttributes.size(); ++i)
+        {
+            logicalAttributes.get(i).writeTo(_out);
+        }
+    }
+
+    /**
+     * Reads a record written by writeTo, restoring its aggregate fields without recomputing them. The key values are
+     * extracted from the store, but the key fingerprints are those that were written.
+     * 
+     * @param _in    snapshot stream
+     * @param _store store holding the record's raw attribute values
+     * @param _key   key attribute(s) applied to the record when it was written
+     * @return the record
+     * @throws IOException
+     */
+    public static DataRecord readFrom(DataInputStream _in, ColumnStore _store, KeyAttribute _key) throws IOException
+    {
+        int id = _in.readInt();
+        int row = _in.readInt();
+        DataRecord record = new DataRecord(id, _store, row);
+
+        record.populatedValueCount = _in.readInt();
+        record.rowFingerprint = _in.readLong();
+        record.nonKeyFingerprint = _in.readLong();
+        record.keyFingerprint = _in.readLong();
+        record.earliest = _in.readLong();
+        record.latest = _in.readLong();
+        record.elapsedTime = _in.readLong();
+        record.timestampGranularity = TimestampGranularity.values()[_in.readInt()];
+        record.eventSequence = SnapshotFormat.readString(_in);
+
+        int numLogicalAttributes = _in.readInt();
+        for (int i = 0; i < numLogicalAttributes; ++i)
+        {
+            record.logicalAttributes.add(LogicalAttribute.readFrom(_in));
+        }
+
+        record.key = new KeyAttribute(_key);
+        record.key.extractKeyValues(record);
+
+        return record;
+    }
+
     public void printDiffs(DataRecord _compare)
     {
-        int thisSize = rawAttributeValues.size();
-        int compSize = _compare.rawAttributeValues.size();
+        int thisSize = getNumAttributeValues();
+        int compSize = _compare.getNumAttributeValues();
         
         for(int i=0; i<thisSize; ++i)
         {
-            String thisVal = rawAttributeValues.get(i);
+            String thisVal = getAttributeValueAt(i);
             String compVal = "";
             
             if(compSize > i)
             {
-                compVal = _compare.rawAttributeValues.get(i);
+                compVal = _compare.getAttributeValueAt(i);
             }
             
             if(!thisVal.equals(compVal))
@@ -152,7 +262,7 @@ public class DataRecord
         for(int j=thisSize; j<compSize; ++j)
         {
             String thisVal = "";
-            String compVal = _compare.rawAttributeValues.get(j);
+            String compVal = _compare.getAttributeValueAt(j);
             
             System.out.println("Attribute#"+j + ", ID:" + id + " " + thisVal + "\tID:" + _compare.id + " " + compVal);
         }
@@ -185,9 +295,10 @@ public class DataRecord
          * for false; (2) detected (utilized) timestamp fields in integer/long format (not in date or time string
          * format) will use their raw int/long value.
          */
-        for (int i = 0; i < rawAttributeValues.size(); ++i)
+        int numValues = getNumAttributeValues();
+        for (int i = 0; i < numValues; ++i)
         {
-            String value = rawAttributeValues.get(i);
+            String value = getAttributeValueAt(i);
             int toAdd = -1;
 
             if(recordIndexToTimestamp.containsKey(i))
@@ -330,67 +441,53 @@ public class DataRecord
 
     public boolean equalsIgnoreKeyFields(DataRecord _compare)
     {
-        boolean match = true;
-
-        int keyIndex1 = key.getPrimaryAttributeIndex();
-        int keyIndex2 = key.getSecondaryAttributeIndex();
-
-        // if there are a different number of attributes, it's not a match
-        if(rawAttributeValues.size() != _compare.rawAttributeValues.size())
-        {
-            match = false;
-        }
-
         /*
-         * Go through non-key fields and look for one that isn't equal; if found set match to false and end the
-         * iteration. Do not need to compare aggregate fields as they are based on raw primary data.
+         * Go through non-key fields and look for one that isn't equal. Do not need to compare aggregate fields as they
+         * are based on raw primary data.
          */
-        for (int i = 0; i < rawAttributeValues.size() && match; ++i)
-        {
-            if (i != keyIndex1 && i != keyIndex2)
-            {
-                if (!rawAttributeValues.get(i).equals(_compare.rawAttributeValues.get(i)))
-                {
-                    match = false;
-                }
-            }
-        }
-
-        return match;
+        return valuesEqual(_compare, key.getPrimaryAttributeIndex(), key.getSecondaryAttributeIndex());
     }
 
     public boolean exactMatch(DataRecord _compare)
     {
+        // no need to compare aggregate fields - they are based on raw primary data
+        return valuesEqual(_compare, -1, -1);
+    }
+
+    /*
+     * Determines whether this record and _compare hold the same number of raw attribute values and the same value at
+     * every index other than the two given indices. Records held by the same store are compared by dictionary code.
+     */
+    private boolean valuesEqual(DataRecord _compare, int _ignoreIndex1, int _ignoreIndex2)
+    {
+        if (store == _compare.store)
+        {
+            return store.rowsEqual(row, _compare.row, _ignoreIndex1, _ignoreIndex2);
+        }
+
         boolean match = true;
+        int numValues = getNumAttributeValues();
 
-        // if there are a different number of attributes, it's not an exact match
-        if(rawAttributeValues.size() != _compare.rawAttributeValues.size())
+        // if there are a different number of attributes, it's not a match
+        if (numValues != _compare.getNumAttributeValues())
         {
             match = false;
         }
-        
-        // no need to compare aggregate fields - they are based on raw primary data
-        for (int i = 0; i < rawAttributeValues.size() && match; ++i)
+
+        for (int i = 0; i < numValues && match; ++i)
         {
-            if (!rawAttributeValues.get(i).equals(_compare.rawAttributeValues.get(i)))
+            if (i != _ignoreIndex1 && i != _ignoreIndex2)
             {
-                match = false;
+                if (!getAttributeValueAt(i).equals(_compare.getAttributeValueAt(i)))
+                {
+                    match = false;
+                }
             }
         }
 
         return match;
     }
 
-    public void addAttributeValue(String _attribute)
-    {
-        rawAttributeValues.add(new String(_attribute));
-
-        if (!_attribute.trim().equals(""))
-        {
-            ++populatedValueCount;
-        }
-    }
-
     public void addLogicalAttribute(LogicalAttribute _attribute)
     {        
         logicalAttributes.add(_attribute);
@@ -413,7 +510,7 @@ public class DataRecord
      */
     public void applyRecordType(int _index)
     {
-        recordType = rawAttributeValues.get(_index);
+        recordType = getAttributeValueAt(_index);
     }
     
     /**
@@ -429,7 +526,14 @@ public class DataRecord
     public void applyKey(KeyAttribute _key)
     {
         key = new KeyAttribute(_key);
-        key.extractKeyValues(rawAttributeValues);
+        key.extractKeyValues(this);
+
+        // fingerprint the non-key values so non-key matches may be found by grouping rather than pairwise comparison
+        nonKeyFingerprint = fingerprint(key.getPrimaryAttributeIndex(), key.getSecondaryAttributeIndex());
+
+        // likewise fingerprint the key values so records sharing the same key may be grouped
+        keyFingerprint = hashValue(hashValue(FNV_OFFSET_BASIS, key.getPrimaryAttributeValue()),
+                key.getSecondaryAttributeValue());
     }
 
     /**
@@ -441,6 +545,17 @@ public class DataRecord
     public void readComplete()
     {
         // record has finished being populated; now generate aggregate fields
+        int numValues = getNumAttributeValues();
+        for (int i = 0; i < numValues; ++i)
+        {
+            if (!getAttributeValueAt(i).trim().equals(""))
+            {
+                ++populatedValueCount;
+            }
+        }
+
+        // fingerprint all raw values so exact matches may be found by grouping rather than pairwise comparison
+        rowFingerprint = fingerprint(-1, -1);
 
         /*
          * Now that we know the logical attributes (inclusive of timestamps), we may determine the elapsed time and
@@ -490,6 +605,83 @@ public class DataRecord
         }
     }
 
+    /*
+     * 64-bit FNV-1a hash over the raw attribute values, skipping the values at the given indices. A separator is
+     * hashed after every position (skipped or not) so that values are position-sensitive and records with differing
+     * numbers of attributes produce different fingerprints.
+     */
+    private long fingerprint(int _skipIndex1, int _skipIndex2)
+    {
+        long hash = FNV_OFFSET_BASIS;
+        int numValues = getNumAttributeValues();
+
+        for (int i = 0; i < numValues; ++i)
+        {
+            if (i != _skipIndex1 && i != _skipIndex2)
+            {
+                hash = hashValue(hash, getAttributeValueAt(i));
+            }
+            else
+            {
+                hash = hashValue(hash, "");
+            }
+        }
+
+        return hash;
+    }
+
+    /*
+     * Folds the characters of _value, followed by a separator, into the running FNV-1a _hash
+     */
+    private static long hashValue(long _hash, String _value)
+    {
+        for (int c = 0; c < _value.length(); ++c)
+        {
+            _hash ^= _value.charAt(c);
+            _hash *= FNV_PRIME;
+        }
+
+        _hash ^= '\t';
+        _hash *= FNV_PRIME;
+
+        return _hash;
+    }
+
+    /**
+     * Returns the fingerprint of all raw attribute values. Records that are an exact match always share the same
+     * fingerprint; records sharing a fingerprint must still be confirmed with exactMatch.
+     * 
+     * @return 64-bit fingerprint of the raw attribute values
+     */
+    public long getRowFingerprint()
+    {
+        return rowFingerprint;
+    }
+
+    /**
+     * Returns the fingerprint of all raw attribute values other than the key attribute(s). Only valid once the key has
+     * been applied. Records that match on all non-key fields always share the same fingerprint; records sharing a
+     * fingerprint must still be confirmed with equalsIgnoreKeyFields.
+     * 
+     * @return 64-bit fingerprint of the non-key raw attribute values
+     */
+    public long getNonKeyFingerprint()
+    {
+        return nonKeyFingerprint;
+    }
+
+    /**
+     * Returns the fingerprint of the key attribute value(s). Only valid once the key has been applied. Records that
+     * share the same keys always share the same fingerprint; records sharing a fingerprint must still be confirmed
+     * with sharesSameKeys.
+     * 
+     * @return 64-bit fingerprint of the key attribute values
+     */
+    public long getKeyFingerprint()
+    {
+        return keyFingerprint;
+    }
+
     private int getNumLogicalAttributes()
     {
         return logicalAttributes.size();
@@ -510,38 +702,47 @@ public class DataRecord
         return eventSequenceUnconstrained;
     }
 
+    /**
+     * Returns the number of space-separated elements in the unconstrained event sequence, as determined when the LCS
+     * was last applied. Note that an empty sequence is reported as having a length of one.
+     * 
+     * @return number of elements in the unconstrained event sequence
+     */
     public int getEventSequenceUnconstrainedLength()
     {
-        String[] items = eventSequenceUnconstrained.split(" ");
-        return items.length;
+        return eventSequenceUnconstrainedLength;
     }
 
-    private String getMatches()
+    /*
+     * Appends the space-separated IDs of the matched records
+     */
+    private void appendMatches(StringBuilder _output)
     {
-        String m = "";
-
         for (int i = 0; i < matches.size(); ++i)
         {
-            m += matches.get(i) + " ";
-        }
-
-        m = m.trim();
+            if (i > 0)
+            {
+                _output.append(' ');
+            }
 
-        return m;
+            _output.append(matches.get(i).intValue());
+        }
     }
 
-    private String getClasses()
+    /*
+     * Appends the space-separated duplicate classes the matches were detected by
+     */
+    private void appendClasses(StringBuilder _output)
     {
-        String c = "";
-
         for (int i = 0; i < classes.size(); ++i)
         {
-            c += classes.get(i) + " ";
-        }
-
-        c = c.trim();
+            if (i > 0)
+            {
+                _output.append(' ');
+            }
 
-        return c;
+            _output.append(classes.get(i));
+        }
     }
 
     public int getId()
@@ -556,12 +757,43 @@ public class DataRecord
     
     public String getAttributeValueAt(int _index)
     {
-        return rawAttributeValues.get(_index);
+        return store.getValue(row, _index);
     }
-    
+
+    /**
+     * Returns the dictionary code of the raw attribute value at the given index within the record's store, or
+     * ColumnStore.NO_VALUE if the record holds fewer values. Values at the same index of two records held by the same
+     * store are equal exactly when their codes are equal.
+     * 
+     * @param _index attribute index
+     * @return dictionary code or ColumnStore.NO_VALUE
+     */
+    public int getAttributeCodeAt(int _index)
+    {
+        return store.getCode(row, _index);
+    }
+
+    public int getNumAttributeValues()
+    {
+        return store.getNumFields(row);
+    }
+
+    /**
+     * Returns a new list holding the raw attribute values of the record.
+     * 
+     * @return raw attribute values
+     */
     public ArrayList<String> getRawAttributeValues()
     {
-        return rawAttributeValues;
+        int numValues = getNumAttributeValues();
+        ArrayList<String> values = new ArrayList<String>(numValues);
+
+        for (int i = 0; i < numValues; ++i)
+        {
+            values.add(getAttributeValueAt(i));
+        }
+
+        return values;
     }
 
     public boolean applyLCS(LCS _lcs)
@@ -673,24 +905,38 @@ public class DataRecord
             }
         }
 
+        // the unconstrained sequence is final; count its elements once rather than on every comparison
+        eventSequenceUnconstrainedLength = eventSequenceUnconstrained.split(" ").length;
+
         return lcsAdhered;
     }
     
     public String toTabDelimRawFields()
-    {        
-        String output = "";
+    {
+        StringBuilder output = new StringBuilder();
+        appendTabDelimRawFields(output);
+
+        return output.toString();
+    }
+
+    /**
+     * Appends the tab-delimited raw attribute values to _output, as toTabDelimRawFields returns them.
+     * 
+     * @param _output builder to append to
+     */
+    public void appendTabDelimRawFields(StringBuilder _output)
+    {
+        int numValues = getNumAttributeValues();
 
-        for (int i = 0; i < rawAttributeValues.size(); ++i)
+        for (int i = 0; i < numValues; ++i)
         {
             if (i > 0)
             {
-                output += "\t";
+                _output.append('\t');
             }
-            
-            output += rawAttributeValues.get(i);
-        }
 
-        return output;
+            _output.append(getAttributeValueAt(i));
+        }
     }
 
     /**
@@ -702,7 +948,7 @@ public class DataRecord
      */
     public static String getAnalysisHeaderRow(String _headers)
     {
-        String analysisHeaders = "ID\tTruth Data Duplicate\t# Matches\tDuplicate IDs\tDetected By Duplicate Class\t# Timestamps\tEarliest Timestamp\tLatest Timestamp\tElapsed Time\t"
+        String analysisHeaders = "ID\tTruth Data Duplicate\t# Matches\tDuplicate IDs\tCluster ID\tCluster Size\tDetected By Duplicate Class\t# Timestamps\tEarliest Timestamp\tLatest Timestamp\tElapsed Time\t"
                 + "Record Type LCS\tLCS Length\tEvent Sequence\tLCS Adherence\tUnconstrained Sequence\tUnconstrained Sequence Length\t";
 
         String headerRow = analysisHeaders + _headers;
@@ -713,18 +959,38 @@ public class DataRecord
     /**
      * This method and toTabDelimAnalysisFields match analysis header titles and content and must be maintained together.
      * 
+     * @param _clusters duplicate clusters determined over the records, giving the record's cluster ID and size
      * @return
      */
-    public String toTabDelimAnalysisFields()
+    public String toTabDelimAnalysisFields(DuplicateClusters _clusters)
     {
-        String output = "";
+        StringBuilder output = new StringBuilder();
+        appendTabDelimAnalysisFields(output, _clusters);
 
-        // id #_matches duplicate_ids duplicate_classes earliest latest elapsed_time record_type_lcs lcs_length
-        // event_sequence lcs_adherence unconstrained_sequence raw_attrs
-        output += id + "\t" + isTruthDuplicate + "\t" + matches.size() + "\t" + getMatches() + "\t" + getClasses() + "\t" + getNumTimestamps() + "\t" + earliest + "\t"
-                + latest + "\t" + elapsedTime + "\t" + lcsForRecordType + "\t" + typeConstrainedLength + "\t"
-                + eventSequence + "\t" + lcsAdhered + "\t" + eventSequenceUnconstrained + "\t" + recordUnconstrainedLength + "\t" + toTabDelimRawFields();
+        return output.toString();
+    }
 
-        return output;
+    /**
+     * Appends the tab-delimited analysis fields to _output, as toTabDelimAnalysisFields returns them.
+     * This method and getAnalysisHeaderRow match analysis header titles and content and must be maintained together.
+     * 
+     * @param _output   builder to append to
+     * @param _clusters duplicate clusters determined over the records, giving the record's cluster ID and size
+     */
+    public void appendTabDelimAnalysisFields(StringBuilder _output, DuplicateClusters _clusters)
+    {
+        // id #_matches duplicate_ids cluster_id cluster_size duplicate_classes earliest latest elapsed_time record_type_lcs lcs_length
+        // event_sequence lcs_adherence unconstrained_sequence raw_attrs
+        _output.append(id).append('\t').append(isTruthDuplicate).append('\t').append(matches.size()).append('\t');
+        appendMatches(_output);
+        _output.append('\t').append(_clusters.getClusterId(id)).append('\t').append(_clusters.getClusterSize(id))
+                .append('\t');
+        appendClasses(_output);
+        _output.append('\t').append(getNumTimestamps()).append('\t').append(earliest).append('\t').append(latest)
+                .append('\t').append(elapsedTime).append('\t').append(lcsForRecordType).append('\t')
+                .append(typeConstrainedLength).append('\t').append(eventSequence).append('\t').append(lcsAdhered)
+                .append('\t').append(eventSequenceUnconstrained).append('\t').append(recordUnconstrainedLength)
+                .append('\t');
+        appendTabDelimRawFields(_output);
     }
 }
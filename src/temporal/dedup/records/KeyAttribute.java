@@ -1,6 +1,10 @@
 package temporal.dedup.records;
 
-import java.util.ArrayList;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import temporal.dedup.io.SnapshotFormat;
 
 /**
  * Representation of a single or dual attribute key value for a record. Maintains indices, attribute names, and
@@ -93,16 +97,16 @@ public class KeyAttribute
         return match;
     }
 
-    public void extractKeyValues(ArrayList<String> _rawValues)
+    public void extractKeyValues(DataRecord _record)
     {
         if (length == 1)
         {
-            primaryAttributeValue = _rawValues.get(primaryAttributeIndex);
+            primaryAttributeValue = _record.getAttributeValueAt(primaryAttributeIndex);
         }
         else if (length == 2)
         {
-            primaryAttributeValue = new String(_rawValues.get(primaryAttributeIndex));
-            secondaryAttributeValue = new String(_rawValues.get(secondaryAttributeIndex));
+            primaryAttributeValue = _record.getAttributeValueAt(primaryAttributeIndex);
+            secondaryAttributeValue = _record.getAttributeValueAt(secondaryAttributeIndex);
         }
         else
         {
@@ -110,6 +114,40 @@ public class KeyAttribute
         }
     }
 
+    /**
+     * Writes the key attribute names and indices (but not values) to a snapshot.
+     * 
+     * @param _out snapshot stream
+     * @throws IOException
+     */
+    public void writeTo(DataOutputStream _out) throws IOException
+    {
+        _out.writeInt(length);
+        SnapshotFormat.writeString(_out, primaryAttributeName);
+        _out.writeInt(primaryAttributeIndex);
+        SnapshotFormat.writeString(_out, secondaryAttributeName);
+        _out.writeInt(secondaryAttributeIndex);
+    }
+
+    /**
+     * Reads a key written by writeTo.
+     * 
+     * @param _in snapshot stream
+     * @return the key, without values
+     * @throws IOException
+     */
+    public static KeyAttribute readFrom(DataInputStream _in) throws IOException
+    {
+        KeyAttribute key = new KeyAttribute();
+        key.length = _in.readInt();
+        key.primaryAttributeName = SnapshotFormat.readString(_in);
+        key.primaryAttributeIndex = _in.readInt();
+        key.secondaryAttributeName = SnapshotFormat.readString(_in);
+        key.secondaryAttributeIndex = _in.readInt();
+
+        return key;
+    }
+
     public String getPrimaryAttributeName()
     {
         return primaryAttributeName;
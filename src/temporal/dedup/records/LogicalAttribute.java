@@ -1,12 +1,13 @@
 package temporal.dedup.records;
 
-import java.util.ArrayList;
-
-import temporal.dedup.utils.StringUtils;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 
 /**
- * Maintains the attribute values and timestamps associated with a logical attribute. A logical attribute is a
- * collection of attributes that appear in the raw data that together describe an entity.
+ * Maintains the position and timestamp associated with a logical attribute. A logical attribute is a collection of
+ * consecutive attributes that appear in the raw data that together describe an entity. The attribute values themselves
+ * are held by the record the logical attribute belongs to.
  */
 public class LogicalAttribute
 {
@@ -16,19 +17,28 @@ public class LogicalAttribute
     // record index that specifies the timestamp used
     private int timestampIndex;
     private DataRecord.TimestampGranularity timestampGranularity;
-    private ArrayList<String> attributeValues;
+
+    // record index of the first attribute of the logical attribute, and the number of attributes it spans
+    private int firstAttributeIndex;
+    private int numAttributes;
 
     /*
      * Future enhancement: - combine date and time fields if both are provided to calculate a more precise timestamp
      */
 
-    public LogicalAttribute(int _relativeNumber)
+    /**
+     * @param _relativeNumber      position of the logical attribute amongst the record's logical attributes
+     * @param _firstAttributeIndex record index of the first attribute of the logical attribute
+     * @param _numAttributes       number of attributes the logical attribute spans
+     */
+    public LogicalAttribute(int _relativeNumber, int _firstAttributeIndex, int _numAttributes)
     {
         relativeNumber = _relativeNumber;
         timestamp = 0;
         timestampIndex = -1;
         timestampGranularity = DataRecord.TimestampGranularity.UNKNOWN;
-        attributeValues = new ArrayList<String>();
+        firstAttributeIndex = _firstAttributeIndex;
+        numAttributes = _numAttributes;
     }
 
     public LogicalAttribute(LogicalAttribute _copy)
@@ -37,13 +47,41 @@ public class LogicalAttribute
         timestamp = _copy.timestamp;
         timestampIndex = _copy.timestampIndex;
         timestampGranularity = _copy.timestampGranularity;
-        attributeValues = new ArrayList<String>();
+        firstAttributeIndex = _copy.firstAttributeIndex;
+        numAttributes = _copy.numAttributes;
+    }
 
-        ArrayList<String> _copyAttributes = _copy.attributeValues;
-        for (int i = 0; i < _copyAttributes.size(); ++i)
-        {
-            attributeValues.add(_copyAttributes.get(i));
-        }
+    /**
+     * Writes the logical attribute, inclusive of its timestamp, to a snapshot.
+     * 
+     * @param _out snapshot stream
+     * @throws IOException
+     */
+    public void writeTo(DataOutputStream _out) throws IOException
+    {
+        _out.writeInt(relativeNumber);
+        _out.writeInt(firstAttributeIndex);
+        _out.writeInt(numAttributes);
+        _out.writeLong(timestamp);
+        _out.writeInt(timestampIndex);
+        _out.writeInt(timestampGranularity.ordinal());
+    }
+
+    /**
+     * Reads a logical attribute written by writeTo.
+     * 
+     * @param _in snapshot stream
+     * @return the logical attribute
+     * @throws IOException
+     */
+    public static LogicalAttribute readFrom(DataInputStream _in) throws IOException
+    {
+        LogicalAttribute la = new LogicalAttribute(_in.readInt(), _in.readInt(), _in.readInt());
+        la.timestamp = _in.readLong();
+        la.timestampIndex = _in.readInt();
+        la.timestampGranularity = DataRecord.TimestampGranularity.values()[_in.readInt()];
+
+        return la;
     }
 
     public int getRelativeNumber()
@@ -51,49 +89,25 @@ public class LogicalAttribute
         return relativeNumber;
     }
 
-    public void addAttributeValue(String _value)
+    public int getFirstAttributeIndex()
     {
-        attributeValues.add(_value);
+        return firstAttributeIndex;
     }
 
-    public ArrayList<String> getAttributeValues()
+    public int getNumAttributes()
     {
-        return attributeValues;
+        return numAttributes;
     }
 
     /**
-     * Provide the time to be associated with this logical attribute by specifiying the index of the time within the
-     * record, the granularity of the timestamp, and the timestamp value itself.
+     * If the provided _granularity offers a lower level than we already have, update the timestamp and timestamp index
+     * with the given values for _timestamp and _indexWithinRecord so long as the _timestamp value is greater than 0.
      * 
-     * @param _timestamp         raw string value of the time
+     * @param _timestamp         time already converted to a numerical timestamp (e.g. by a TimestampConverter)
      * @param _granularity       granularity of the timestamp (date, time of day, exact)
      * @param _indexWithinRecord the index the timestamp appears within the record
      */
-    public void setTimestamp(String _timestamp, DataRecord.TimestampGranularity _granularity, int _indexWithinRecord)
-    {
-        if (_granularity == DataRecord.TimestampGranularity.EXACT)
-        {
-            setTimestamp(Long.parseLong(_timestamp), _granularity, _indexWithinRecord);
-        }
-        else if (_granularity == DataRecord.TimestampGranularity.TIME_OF_DAY)
-        {
-            setTimestamp(StringUtils.convertTimeOfDay(_timestamp), _granularity, _indexWithinRecord);
-        }
-        else if (_granularity == DataRecord.TimestampGranularity.DATE)
-        {
-            setTimestamp(StringUtils.convertDate(_timestamp), _granularity, _indexWithinRecord);
-        }
-        else
-        {
-            System.err.println("Attempted to set timestamp with an invalid or unknown level of granularity.");
-        }
-    }
-
-    /*
-     * if the provided _granularity offers a lower level than we already have, update the timestamp and timestamp index
-     * with the given values for _timestamp and _indexWithinRecord so long as the _timestamp value is greater than 0
-     */
-    private void setTimestamp(long _timestamp, DataRecord.TimestampGranularity _granularity, int _indexWithinRecord)
+    public void setTimestamp(long _timestamp, DataRecord.TimestampGranularity _granularity, int _indexWithinRecord)
     {
         // only process this if it is offering a lower level of granularity than what we've already got
         if (isLowerLevelOfGranularity(_granularity))
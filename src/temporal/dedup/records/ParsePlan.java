@@ -0,0 +1,118 @@
+package temporal.dedup.records;
+
+import java.util.ArrayList;
+
+import temporal.dedup.utils.StringUtils;
+
+/**
+ * Per-column instructions for building records, compiled once from the headers after the logical attributes have been
+ * inferred. Records are then built by indexing the plan directly, with no header string comparisons and no searching
+ * for the columns at which logical attributes start.
+ * 
+ * The plan holds the (ascending) column index at which each logical attribute starts and, for every column, the
+ * granularity of the timestamp the column supplies to its logical attribute, if any. A column supplies a timestamp when
+ * its header contains "timestamp" (EXACT), otherwise "time" (TIME_OF_DAY), otherwise "date" (DATE), ignoring case.
+ * Timestamps are converted by a TimestampConverter per timestamp column (see createConverters).
+ */
+public class ParsePlan
+{
+    private int[] logicalAttributeStarts;
+    private int logicalAttributeLength;
+    private DataRecord.TimestampGranularity[] timestampGranularities;
+
+    /**
+     * @param _headers                     header values, one per column
+     * @param _logicalAttributeStartIndices column index at which each logical attribute starts, in ascending order
+     * @param _logicalAttributeLength      number of columns each logical attribute spans
+     */
+    public ParsePlan(ArrayList<String> _headers, ArrayList<Integer> _logicalAttributeStartIndices,
+            int _logicalAttributeLength)
+    {
+        logicalAttributeLength = _logicalAttributeLength;
+
+        logicalAttributeStarts = new int[_logicalAttributeStartIndices.size()];
+        for (int i = 0; i < logicalAttributeStarts.length; ++i)
+        {
+            logicalAttributeStarts[i] = _logicalAttributeStartIndices.get(i);
+        }
+
+        timestampGranularities = new DataRecord.TimestampGranularity[_headers.size()];
+        for (int i = 0; i < timestampGranularities.length; ++i)
+        {
+            String header = _headers.get(i);
+
+            if (StringUtils.containsIgnoreCase(header, "timestamp"))
+            {
+                timestampGranularities[i] = DataRecord.TimestampGranularity.EXACT;
+            }
+            else if (StringUtils.containsIgnoreCase(header, "time"))
+            {
+                timestampGranularities[i] = DataRecord.TimestampGranularity.TIME_OF_DAY;
+            }
+            else if (StringUtils.containsIgnoreCase(header, "date"))
+            {
+                timestampGranularities[i] = DataRecord.TimestampGranularity.DATE;
+            }
+            else
+            {
+                timestampGranularities[i] = DataRecord.TimestampGranularity.UNKNOWN;
+            }
+        }
+    }
+
+    public int getNumLogicalAttributes()
+    {
+        return logicalAttributeStarts.length;
+    }
+
+    /**
+     * Returns the column index at which the given logical attribute starts.
+     * 
+     * @param _logicalAttribute position of the logical attribute amongst the record's logical attributes
+     * @return column index of the logical attribute's first attribute
+     */
+    public int getLogicalAttributeStart(int _logicalAttribute)
+    {
+        return logicalAttributeStarts[_logicalAttribute];
+    }
+
+    public int getLogicalAttributeLength()
+    {
+        return logicalAttributeLength;
+    }
+
+    /**
+     * Creates a converter for every column that supplies a timestamp, bound to the given store. Conversions are
+     * memoized by each converter, so a set of converters should be created once per store and used for every row of
+     * the store, by one thread at a time.
+     * 
+     * @param _store store the records are built over
+     * @return converter of each column, or null for the columns that do not supply a timestamp
+     */
+    public TimestampConverter[] createConverters(ColumnStore _store)
+    {
+        TimestampConverter[] converters = new TimestampConverter[timestampGranularities.length];
+
+        for (int i = 0; i < converters.length; ++i)
+        {
+            if (timestampGranularities[i] != DataRecord.TimestampGranularity.UNKNOWN)
+            {
+                converters[i] = new TimestampConverter(timestampGranularities[i], _store, i);
+            }
+        }
+
+        return converters;
+    }
+
+    /**
+     * Returns the granularity of the timestamp supplied by the given column, or UNKNOWN if the column does not supply
+     * a timestamp.
+     * 
+     * @param _column column index
+     * @return granularity of the column's timestamp
+     */
+    public DataRecord.TimestampGranularity getTimestampGranularity(int _column)
+    {
+        return timestampGranularities[_column];
+    }
+}
@@ -1,32 +1,103 @@
 package temporal.dedup.records;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 import temporal.dedup.TemporalDedup;
 import temporal.dedup.utils.LCS;
 
 /**
  * Maintains the Longest Common Subsequence (LCS) for a record of a particular type (temporal grouping value).
+ * 
+ * The LCS is maintained incrementally: each sampled sequence is folded into the running LCS as it is added, and is not
+ * kept afterwards as element codes. The fold is the same left chain, LCS(LCS(LCS(s0, s1), s2), ...), the sampled
+ * sequences have always been folded in, and getLCS does no folding of its own.
+ * 
+ * Given a pool to reduce on, the sampled sequences are instead kept and reduced pairwise as a balanced tree (see
+ * LCS.getLCS(List, ForkJoinPool)) when the LCS is requested, so that the sequences of a single record type are reduced
+ * concurrently. The tree's LCS is a common subsequence of every sample, as the chain's is, but need not be the same one;
+ * getChainedLCS gives the chain's for comparison.
+ * 
+ * Records of a type very often share an event sequence, so each distinct sequence sampled is folded (or kept) once only,
+ * and later samples of it are merely counted. Sampling itself (every X, up to N samples) still runs
+ * over every record added, duplicates included. Folding a sequence into a chain that has already folded it leaves the
+ * running LCS as it was (the running LCS is a subsequence of the sequence, so is its own LCS with it), so the chain's
+ * LCS is exactly what folding every copy would give; a tree is reduced over the distinct sequences sampled.
+ * 
+ * Memory per record type is therefore O(distinct sequences sampled): the running LCS, the distinct elements seen and a
+ * reference to each distinct sequence sampled (the records' own strings, which are not copied), however many samples
+ * there are. The distinct sequences are only let go should sampling complete, i.e. should the record type reach the
+ * number of samples asked for; under max-sampling (the default) that number is the size of the dataset, so they are
+ * kept for the life of the record type.
  */
 public class RecordTypeSequence
 {
-    private ArrayList<String> sequences;
     private boolean complete;
     private String temporalGroupingValue;
     private LCS lcs;
 
     private int callsToAdd;
-    private int seqSizeAtLastRequest;
+    private int numSampled;
+
+    /*
+     * Running LCS of the sequences sampled so far, as element codes (see encode)
+     */
+    private int[] running;
+
+    /*
+     * The only sequence sampled so far, as given, until a second is sampled (a record type with a single sample has
+     * always been given that sample, verbatim, as its LCS)
+     */
+    private String firstSequence;
+
+    /*
+     * Code of each distinct element seen, and the element of each code
+     */
+    private HashMap<String, Integer> codes;
+    private ArrayList<String> elements;
+
+    /*
+     * Each distinct sequence sampled, until sampling is complete
+     */
+    private HashSet<String> distinctSequences;
+    private int numDistinctSampled;
+
+    /*
+     * Pool the sampled sequences are reduced on as a tree, or null to fold them as a chain; when reduced as a tree, the
+     * sampled sequences are kept, as element codes
+     */
+    private ForkJoinPool reductionPool;
+    private ArrayList<int[]> samples;
+    private long reductionTime;
 
     public RecordTypeSequence(String _id)
+    {
+        this(_id, null);
+    }
+
+    /**
+     * @param _id            record type
+     * @param _reductionPool pool to reduce the sampled sequences on as a tree, or null to fold them as a chain
+     */
+    public RecordTypeSequence(String _id, ForkJoinPool _reductionPool)
     {
         temporalGroupingValue = new String(_id);
         complete = false;
-        sequences = new ArrayList<String>();
         lcs = null;
         callsToAdd = 0;
-        seqSizeAtLastRequest = 0;
+        numSampled = 0;
+        running = null;
+        firstSequence = null;
+        codes = new HashMap<String, Integer>();
+        elements = new ArrayList<String>();
+        distinctSequences = new HashSet<String>();
+        numDistinctSampled = 0;
+        reductionPool = _reductionPool;
+        samples = (_reductionPool == null) ? null : new ArrayList<int[]>();
+        reductionTime = 0;
     }
 
     /**
@@ -42,34 +113,30 @@ public class RecordTypeSequence
             {
                 if (new Random().nextBoolean())
                 {
-                    sequences.add(_seq);
+                    fold(_seq);
                 }
             }
             else if (callsToAdd % TemporalDedup.LCS_SAMPLING__SELECTION_TYPE_TAKE_EVERY_X == 0)
             {
-                sequences.add(_seq);
+                fold(_seq);
             }
 
-            if (sequences.size() == TemporalDedup.LCS_SAMPLING__NUMBER_OF_RECORDS)
+            if (numSampled == TemporalDedup.LCS_SAMPLING__NUMBER_OF_RECORDS)
             {
                 complete = true;
+                distinctSequences = null;
 
-                if (sequences.size() == 0)
+                if (numSampled == 0)
                 {
                     lcs = new LCS(0, "");
                 }
-                else if (sequences.size() == 1)
+                else if (numSampled == 1)
                 {
-                    lcs = new LCS(sequences.get(0).split(" ").length, sequences.get(0));
+                    lcs = new LCS(firstSequence.split(" ").length, firstSequence);
                 }
                 else
                 {
-                    lcs = LCS.getLCS(sequences.get(0), sequences.get(1));
-
-                    for (int i = 2; i < TemporalDedup.LCS_SAMPLING__NUMBER_OF_RECORDS; ++i)
-                    {
-                        lcs = LCS.getLCS(lcs.getSequence(), sequences.get(i));
-                    }
+                    lcs = buildLCS();
                 }
             }
         }
@@ -77,36 +144,150 @@ public class RecordTypeSequence
         ++callsToAdd;
     }
 
+    /**
+     * Returns the LCS of the sequences sampled so far, or null if none have been sampled. Once sampling is complete, the
+     * LCS is that of the full sample.
+     * 
+     * @return LCS of the sampled sequences
+     */
     public LCS getLCS()
     {
-        // if not complete, calculate fomr what we do have on-hand
-        if (!complete)
+        // if not complete, the LCS is that of what we do have on-hand; it is only rebuilt after a fold changes it
+        if (lcs == null && running != null)
         {
-            if (sequences.size() > seqSizeAtLastRequest)
-            {
-                seqSizeAtLastRequest = sequences.size();
+            lcs = buildLCS();
+        }
 
-                if (seqSizeAtLastRequest == 1)
-                {
-                    lcs = LCS.getLCS(sequences.get(0), sequences.get(0));
-                }
-                else
-                {
-                    lcs = LCS.getLCS(sequences.get(0), sequences.get(1));
+        return lcs;
+    }
 
-                    for (int i = 2; i < seqSizeAtLastRequest; ++i)
-                    {
-                        lcs = LCS.getLCS(lcs.getSequence(), sequences.get(i));
-                    }
-                }
-            }
+    /**
+     * Returns the LCS the sampled sequences fold into as a chain, LCS(LCS(LCS(s0, s1), s2), ...), or null if none have
+     * been sampled. For a record type whose samples are folded as a chain, this is the LCS.
+     * 
+     * @return chained LCS of the sampled sequences
+     */
+    public LCS getChainedLCS()
+    {
+        if (samples == null || numSampled < 2)
+        {
+            return getLCS();
         }
 
-        return lcs;
+        int[] chain = samples.get(0);
+        for (int i = 1; i < samples.size(); ++i)
+        {
+            chain = LCS.getLCS(chain, samples.get(i));
+        }
+
+        return new LCS(chain, elements);
+    }
+
+    public int getNumSampled()
+    {
+        return numSampled;
+    }
+
+    public int getNumDistinctSampled()
+    {
+        return numDistinctSampled;
+    }
+
+    /**
+     * Returns the time spent reducing the sampled sequences as a tree.
+     * 
+     * @return time in milliseconds
+     */
+    public long getReductionTime()
+    {
+        return reductionTime / 1000000;
+    }
+
+    /*
+     * Builds the LCS of the sampled sequences once at least two have been sampled, reducing them as a tree if they were
+     * kept to be
+     */
+    private LCS buildLCS()
+    {
+        if (samples != null)
+        {
+            long start = System.nanoTime();
+            running = LCS.getLCS(samples, reductionPool);
+            reductionTime += System.nanoTime() - start;
+        }
+
+        return new LCS(running, elements);
     }
 
     public String getId()
     {
         return temporalGroupingValue;
     }
+
+    /*
+     * Folds a sampled sequence into the running LCS, unless it has been folded already
+     */
+    private void fold(String _seq)
+    {
+        if (!distinctSequences.add(_seq))
+        {
+            firstSequence = null;
+            ++numSampled;
+            return;
+        }
+
+        ++numDistinctSampled;
+        int[] sequence = encode(_seq);
+
+        if (samples != null)
+        {
+            // the running LCS is left for buildLCS to reduce, but must be set for getLCS to know one is due
+            samples.add(sequence);
+            running = sequence;
+            firstSequence = (numSampled == 0) ? _seq : null;
+        }
+        else if (numSampled == 0)
+        {
+            running = sequence;
+            firstSequence = _seq;
+        }
+        else
+        {
+            running = LCS.getLCS(running, sequence);
+            firstSequence = null;
+        }
+
+        ++numSampled;
+        lcs = null;
+    }
+
+    /*
+     * Returns the element codes of a space-separated sequence, assigning codes to elements not seen before
+     */
+    private int[] encode(String _seq)
+    {
+        if (_seq.length() == 0)
+        {
+            return new int[0];
+        }
+
+        String[] items = _seq.split(" ");
+        int[] sequence = new int[items.length];
+
+        for (int i = 0; i < items.length; ++i)
+        {
+            Integer code = codes.get(items[i]);
+
+            if (code == null)
+            {
+                code = elements.size();
+                codes.put(items[i], code);
+                elements.add(items[i]);
+            }
+
+            sequence[i] = code;
+        }
+
+        return sequence;
+    }
 }
@@ -0,0 +1,270 @@
+package temporal.dedup.records;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Key inference that ranks candidates on a random sample of the records and counts only the best few across every
+ * record. Every eligible attribute and attribute pair is a candidate; its distinct values are counted amongst the
+ * sampled rows only (by dictionary code, so no value is materialized), and the candidates with the most distinct
+ * sampled values are then counted exactly through the StatisticsCatalog. Of those, the key is chosen as the exact
+ * inference (see DataHandler.keyInference) chooses it: the first single attribute, else the first pair, whose values
+ * are unique amongst the records, or otherwise the one with the most distinct values.
+ * 
+ * A candidate that is unique amongst the records is unique amongst any sample, so a primary key ranks at the top of the
+ * sample; it is only missed should more than the number of verified candidates that precede it be unique amongst the
+ * sample too. The sample is drawn with a fixed seed, so repeated runs over the same dataset infer the same key.
+ */
+public class SampledKeyInference
+{
+    private static final long SAMPLE_SEED = 0x5eed;
+
+    private ColumnStore store;
+    private StatisticsCatalog catalog;
+    private ArrayList<String> headers;
+    private int[] attributes;
+    private int sampleSize;
+    private int numCandidates;
+
+    private int[] sampleRows;
+    private int keySampleDistinctCount;
+    private int keyDistinctCount;
+
+    /**
+     * @param _store                    store holding the raw attribute values of every record
+     * @param _catalog                  statistics of the store's columns
+     * @param _headers                  header values, one per column
+     * @param _eligibleAttributeIndices column indices eligible for key consideration, in the order they are considered
+     * @param _sampleSize               number of records to sample (every record, if there are no more than this)
+     * @param _numCandidates            number of top-ranked candidates to count across every record
+     */
+    public SampledKeyInference(ColumnStore _store, StatisticsCatalog _catalog, ArrayList<String> _headers,
+            ArrayList<Integer> _eligibleAttributeIndices, int _sampleSize, int _numCandidates)
+    {
+        store = _store;
+        catalog = _catalog;
+        headers = _headers;
+        sampleSize = Math.max(1, _sampleSize);
+        numCandidates = Math.max(1, _numCandidates);
+
+        attributes = new int[_eligibleAttributeIndices.size()];
+        for (int i = 0; i < attributes.length; ++i)
+        {
+            attributes[i] = _eligibleAttributeIndices.get(i);
+        }
+
+        sampleRows = new int[0];
+        keySampleDistinctCount = 0;
+        keyDistinctCount = 0;
+    }
+
+    /**
+     * Returns the number of records sampled by infer.
+     * 
+     * @return sample size
+     */
+    public int getNumSampled()
+    {
+        return sampleRows.length;
+    }
+
+    /**
+     * Returns the number of distinct values of the inferred key amongst the sampled records.
+     * 
+     * @return distinct values in the sample
+     */
+    public int getKeySampleDistinctCount()
+    {
+        return keySampleDistinctCount;
+    }
+
+    /**
+     * Returns the number of distinct values of the inferred key amongst every record.
+     * 
+     * @return distinct values in the dataset
+     */
+    public int getKeyDistinctCount()
+    {
+        return keyDistinctCount;
+    }
+
+    /**
+     * Infers the key from the top-ranked candidates.
+     * 
+     * @return candidate key
+     */
+    public KeyAttribute infer()
+    {
+        sampleRows = drawSample(store.getNumRows());
+
+        // candidates in the order the exact inference considers them: single attributes, then pairs; a single
+        // attribute is held as a pair with no second attribute
+        int numAttributes = attributes.length;
+        int numCandidatesTotal = numAttributes + numAttributes * (numAttributes - 1) / 2;
+        int[] first = new int[numCandidatesTotal];
+        int[] second = new int[numCandidatesTotal];
+        int[] sampleCounts = new int[numCandidatesTotal];
+        int k = 0;
+
+        for (int i = 0; i < numAttributes; ++i)
+        {
+            first[k] = i;
+            second[k] = -1;
+            ++k;
+        }
+
+        for (int i = 0; i < numAttributes; ++i)
+        {
+            for (int j = i + 1; j < numAttributes; ++j)
+            {
+                first[k] = i;
+                second[k] = j;
+                ++k;
+            }
+        }
+
+        long[] sampleValues = new long[sampleRows.length];
+        for (k = 0; k < numCandidatesTotal; ++k)
+        {
+            sampleCounts[k] = countSampleDistinct(first[k], second[k], sampleValues);
+        }
+
+        // count the top-ranked candidates across every record; of equal sample counts, the earlier candidate ranks
+        // higher
+        int[] counts = new int[numCandidatesTotal];
+        Arrays.fill(counts, -1);
+
+        for (int c = 0; c < Math.min(numCandidates, numCandidatesTotal); ++c)
+        {
+            int top = -1;
+
+            for (k = 0; k < numCandidatesTotal; ++k)
+            {
+                if (counts[k] < 0 && (top < 0 || sampleCounts[k] > sampleCounts[top]))
+                {
+                    top = k;
+                }
+            }
+
+            counts[top] = countDistinct(first[top], second[top]);
+        }
+
+        // as the exact inference does, take the first unique candidate, or otherwise the first with the most values
+        int chosen = -1;
+        int max = 0;
+        int numRows = store.getNumRows();
+
+        for (k = 0; k < numCandidatesTotal; ++k)
+        {
+            if (counts[k] == numRows)
+            {
+                chosen = k;
+                break;
+            }
+            else if (counts[k] > max)
+            {
+                max = counts[k];
+                chosen = k;
+            }
+        }
+
+        if (chosen < 0)
+        {
+            return new KeyAttribute();
+        }
+
+        keySampleDistinctCount = sampleCounts[chosen];
+        keyDistinctCount = counts[chosen];
+
+        if (second[chosen] < 0)
+        {
+            return new KeyAttribute(headers.get(attributes[first[chosen]]), attributes[first[chosen]]);
+        }
+
+        return new KeyAttribute(headers.get(attributes[first[chosen]]), attributes[first[chosen]],
+                headers.get(attributes[second[chosen]]), attributes[second[chosen]]);
+    }
+
+    /*
+     * Draws sampleSize distinct rows (or every row) in ascending order, by Floyd's algorithm
+     */
+    private int[] drawSample(int _numRows)
+    {
+        if (_numRows <= sampleSize)
+        {
+            int[] rows = new int[_numRows];
+            for (int r = 0; r < _numRows; ++r)
+            {
+                rows[r] = r;
+            }
+
+            return rows;
+        }
+
+        Random random = new Random(SAMPLE_SEED);
+        boolean[] chosen = new boolean[_numRows];
+
+        for (int r = _numRows - sampleSize; r < _numRows; ++r)
+        {
+            int candidate = random.nextInt(r + 1);
+            chosen[chosen[candidate] ? r : candidate] = true;
+        }
+
+        int[] rows = new int[sampleSize];
+        int n = 0;
+        for (int r = 0; r < _numRows; ++r)
+        {
+            if (chosen[r])
+            {
+                rows[n++] = r;
+            }
+        }
+
+        return rows;
+    }
+
+    /*
+     * Counts the distinct values of a candidate amongst the sampled rows by sorting their codes
+     */
+    private int countSampleDistinct(int _first, int _second, long[] _values)
+    {
+        for (int s = 0; s < sampleRows.length; ++s)
+        {
+            long value = store.getCode(sampleRows[s], attributes[_first]);
+
+            if (_second >= 0)
+            {
+                value = (value << 32) | (store.getCode(sampleRows[s], attributes[_second]) & 0xffffffffL);
+            }
+
+            _values[s] = value;
+        }
+
+        Arrays.sort(_values);
+
+        int count = 0;
+        for (int s = 0; s < _values.length; ++s)
+        {
+            if (s == 0 || _values[s] != _values[s - 1])
+            {
+                ++count;
+            }
+        }
+
+        return count;
+    }
+
+    /*
+     * Counts the distinct values of a candidate amongst every record
+     */
+    private int countDistinct(int _first, int _second)
+    {
+        if (_second < 0)
+        {
+            return catalog.getColumnStatistics(attributes[_first]).getDistinctCount();
+        }
+
+        return catalog.getPairStatistics(attributes[_first], attributes[_second]).getDistinctCount();
+    }
+}
@@ -0,0 +1,302 @@
+package temporal.dedup.records;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import temporal.dedup.utils.HyperLogLog;
+
+/**
+ * Key inference that estimates, rather than counts, the distinct values of every attribute pair. The exact inference
+ * (see DataHandler.keyInference) tallies every pair of values of every eligible attribute pair, a table of up to n
+ * entries per pair for a eligible attributes and n records; this inference sketches the pairs in fixed memory instead,
+ * working from the dictionary codes of the ColumnStore so that nothing is allocated per record.
+ * 
+ * - Single attributes are counted exactly, by the StatisticsCatalog.
+ * - Attribute pairs are estimated by a HyperLogLog sketch each, built in a single pass over the rows (or a few passes,
+ * should there be more pairs than fit in memory at once). A pair's hash is the mix of its two codes, so no value is
+ * ever materialized.
+ * - Only the pairs whose estimate is within a few standard errors of the number of records are candidates for the
+ * primary key, and only they are verified exactly, in the order the exact inference considers them; verification
+ * stops at the first duplicate. The first pair verified unique is the key, as it would have been for the exact
+ * inference.
+ * - Should no attribute or pair be unique, the key is the one with the most distinct values amongst the single
+ * attributes and the top few pairs by estimate, whose values are then counted exactly.
+ * 
+ * Values are compared by dictionary code; a position beyond the end of a row is treated as a value of its own.
+ */
+public class SketchedKeyInference
+{
+    /*
+     * Sketch precision: 16 KB of registers per pair and a relative standard error of about 0.8%
+     */
+    private static final int PRECISION = 14;
+
+    /*
+     * Bound on the number of sketches held at once (16 MB at the above precision)
+     */
+    private static final int MAX_SKETCHES_PER_PASS = 1024;
+
+    /*
+     * Standard errors an estimate may fall short of the number of records for its pair to still be a candidate
+     */
+    private static final double CANDIDATE_MARGIN = 4.0;
+
+    /*
+     * Number of pairs counted exactly when no primary key is found
+     */
+    private static final int NUM_FALLBACK_CANDIDATES = 8;
+
+    private static final long EMPTY_SLOT = -1L;
+
+    private ColumnStore store;
+    private StatisticsCatalog catalog;
+    private ArrayList<String> headers;
+    private int[] attributes;
+    private int[] noValueCodes;
+    private int numRows;
+
+    private int numPairsEstimated;
+    private int numCandidatesVerified;
+
+    /**
+     * @param _store                    store holding the raw attribute values of every record
+     * @param _catalog                  statistics of the store's columns
+     * @param _headers                  header values, one per column
+     * @param _eligibleAttributeIndices column indices eligible for key consideration, in the order they are considered
+     */
+    public SketchedKeyInference(ColumnStore _store, StatisticsCatalog _catalog, ArrayList<String> _headers,
+            ArrayList<Integer> _eligibleAttributeIndices)
+    {
+        store = _store;
+        catalog = _catalog;
+        headers = _headers;
+        numRows = _store.getNumRows();
+
+        attributes = new int[_eligibleAttributeIndices.size()];
+        noValueCodes = new int[attributes.length];
+        for (int i = 0; i < attributes.length; ++i)
+        {
+            attributes[i] = _eligibleAttributeIndices.get(i);
+            noValueCodes[i] = _store.getDictionary(attributes[i]).size();
+        }
+
+        numPairsEstimated = 0;
+        numCandidatesVerified = 0;
+    }
+
+    public int getNumPairsEstimated()
+    {
+        return numPairsEstimated;
+    }
+
+    public int getNumCandidatesVerified()
+    {
+        return numCandidatesVerified;
+    }
+
+    /**
+     * Infers the key: the first single attribute, else the first attribute pair, whose values are unique amongst the
+     * records, or otherwise the attribute or pair with the most distinct values.
+     * 
+     * @return candidate key
+     */
+    public KeyAttribute infer()
+    {
+        int numAttributes = attributes.length;
+        int[] distinct = new int[numAttributes];
+
+        for (int i = 0; i < numAttributes; ++i)
+        {
+            distinct[i] = catalog.getColumnStatistics(attributes[i]).getDistinctCount();
+
+            if (distinct[i] == numRows)
+            {
+                return new KeyAttribute(headers.get(attributes[i]), attributes[i]);
+            }
+        }
+
+        // enumerate the pairs in the order the exact inference considers them
+        int numPairs = numAttributes * (numAttributes - 1) / 2;
+        int[] first = new int[numPairs];
+        int[] second = new int[numPairs];
+        int k = 0;
+
+        for (int i = 0; i < numAttributes; ++i)
+        {
+            for (int j = i + 1; j < numAttributes; ++j)
+            {
+                first[k] = i;
+                second[k] = j;
+                ++k;
+            }
+        }
+
+        double[] estimates = estimatePairs(first, second, distinct);
+        double threshold = numRows * (1 - CANDIDATE_MARGIN * HyperLogLog.getRelativeStandardError(PRECISION));
+
+        for (k = 0; k < numPairs; ++k)
+        {
+            if (estimates[k] >= threshold && (long) distinct[first[k]] * distinct[second[k]] >= numRows)
+            {
+                ++numCandidatesVerified;
+
+                if (countDistinct(first[k], second[k], true) == numRows)
+                {
+                    return pairKey(first[k], second[k]);
+                }
+            }
+        }
+
+        // no primary key; count the top pairs by estimate exactly
+        long[] counts = new long[numPairs];
+        Arrays.fill(counts, -1);
+
+        for (int c = 0; c < Math.min(NUM_FALLBACK_CANDIDATES, numPairs); ++c)
+        {
+            int top = -1;
+
+            for (k = 0; k < numPairs; ++k)
+            {
+                if (counts[k] < 0 && (top < 0 || estimates[k] > estimates[top]))
+                {
+                    top = k;
+                }
+            }
+
+            counts[top] = countDistinct(first[top], second[top], false);
+            ++numCandidatesVerified;
+        }
+
+        // as the exact inference does, take the first attribute or pair with the most distinct values
+        KeyAttribute candidateKey = new KeyAttribute();
+        long max = 0;
+
+        for (int i = 0; i < numAttributes; ++i)
+        {
+            if (distinct[i] > max)
+            {
+                max = distinct[i];
+                candidateKey = new KeyAttribute(headers.get(attributes[i]), attributes[i]);
+            }
+        }
+
+        for (k = 0; k < numPairs; ++k)
+        {
+            if (counts[k] > max)
+            {
+                max = counts[k];
+                candidateKey = pairKey(first[k], second[k]);
+            }
+        }
+
+        return candidateKey;
+    }
+
+    /*
+     * Estimates the distinct values of every pair, bounded by what the exact counts of its attributes allow
+     */
+    private double[] estimatePairs(int[] _first, int[] _second, int[] _distinct)
+    {
+        int numPairs = _first.length;
+        double[] estimates = new double[numPairs];
+        int[] rowCodes = new int[attributes.length];
+
+        for (int batchStart = 0; batchStart < numPairs; batchStart += MAX_SKETCHES_PER_PASS)
+        {
+            int batchEnd = Math.min(numPairs, batchStart + MAX_SKETCHES_PER_PASS);
+            HyperLogLog[] sketches = new HyperLogLog[batchEnd - batchStart];
+
+            for (int k = 0; k < sketches.length; ++k)
+            {
+                sketches[k] = new HyperLogLog(PRECISION);
+            }
+
+            for (int row = 0; row < numRows; ++row)
+            {
+                for (int i = 0; i < rowCodes.length; ++i)
+                {
+                    rowCodes[i] = getCode(row, i);
+                }
+
+                for (int k = batchStart; k < batchEnd; ++k)
+                {
+                    sketches[k - batchStart].add(pairHash(rowCodes[_first[k]], rowCodes[_second[k]]));
+                }
+            }
+
+            for (int k = batchStart; k < batchEnd; ++k)
+            {
+                long lower = Math.max(_distinct[_first[k]], _distinct[_second[k]]);
+                long upper = Math.min(numRows, (long) _distinct[_first[k]] * _distinct[_second[k]]);
+                estimates[k] = Math.min(upper, Math.max(lower, sketches[k - batchStart].estimate()));
+            }
+
+            numPairsEstimated += sketches.length;
+        }
+
+        return estimates;
+    }
+
+    /*
+     * Counts the distinct values of a pair of eligible attributes, stopping at the first duplicate if requested (in
+     * which case the count is only meaningful when it equals the number of rows)
+     */
+    private long countDistinct(int _first, int _second, boolean _stopAtDuplicate)
+    {
+        int capacity = 2;
+        while (capacity < numRows * 2)
+        {
+            capacity <<= 1;
+        }
+
+        long[] table = new long[capacity];
+        Arrays.fill(table, EMPTY_SLOT);
+        int mask = capacity - 1;
+        long count = 0;
+
+        for (int row = 0; row < numRows; ++row)
+        {
+            long value = ((long) getCode(row, _first) << 32) | getCode(row, _second);
+            int slot = (int) HyperLogLog.mix(value) & mask;
+
+            while (table[slot] != EMPTY_SLOT && table[slot] != value)
+            {
+                slot = (slot + 1) & mask;
+            }
+
+            if (table[slot] == EMPTY_SLOT)
+            {
+                table[slot] = value;
+                ++count;
+            }
+            else if (_stopAtDuplicate)
+            {
+                return count;
+            }
+        }
+
+        return count;
+    }
+
+    /*
+     * Returns the dictionary code of an eligible attribute's value in the given row, or the attribute's code for no
+     * value
+     */
+    private int getCode(int _row, int _attribute)
+    {
+        int code = store.getCode(_row, attributes[_attribute]);
+
+        return (code == ColumnStore.NO_VALUE) ? noValueCodes[_attribute] : code;
+    }
+
+    private static long pairHash(int _code1, int _code2)
+    {
+        return HyperLogLog.mix(((long) _code1 << 32) | _code2);
+    }
+
+    private KeyAttribute pairKey(int _first, int _second)
+    {
+        return new KeyAttribute(headers.get(attributes[_first]), attributes[_first], headers.get(attributes[_second]),
+                attributes[_second]);
+    }
+}
@@ -0,0 +1,303 @@
+package temporal.dedup.records;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import temporal.dedup.utils.HyperLogLog;
+import temporal.dedup.utils.TimestampParser;
+
+/**
+ * Catalog of the ColumnStatistics of every column of a ColumnStore, gathered once after parsing and shared by every
+ * inference that needs to know how a column's values are distributed (key inference, record type inference, blocking
+ * key selection). The columns are scanned concurrently, one task per column, and each column is scanned once: values
+ * are tallied by dictionary code, so no value is hashed or compared along the way.
+ * 
+ * Statistics of a pair of columns are gathered on request and kept, so a pair considered by more than one inference is
+ * only scanned once.
+ */
+public class StatisticsCatalog
+{
+    /**
+     * Number of most frequent values kept per column (or pair)
+     */
+    public static final int NUM_TOP_VALUES = 5;
+
+    private static final long EMPTY_SLOT = -1L;
+
+    private ColumnStore store;
+    private int numRows;
+    private ColumnStatistics[] columns;
+    private boolean[][] nullCodes;
+    private HashMap<Long, ColumnStatistics> pairs;
+
+    private StatisticsCatalog(ColumnStore _store)
+    {
+        store = _store;
+        numRows = _store.getNumRows();
+        columns = new ColumnStatistics[_store.getNumColumns()];
+        nullCodes = new boolean[columns.length][];
+        pairs = new HashMap<Long, ColumnStatistics>();
+    }
+
+    /**
+     * Gathers the statistics of every column of the store, scanning the columns concurrently.
+     * 
+     * @param _store      store holding the raw attribute values of every record
+     * @param _numThreads number of threads to scan the columns with
+     * @return the catalog
+     */
+    public static StatisticsCatalog build(ColumnStore _store, int _numThreads)
+    {
+        final StatisticsCatalog catalog = new StatisticsCatalog(_store);
+        ForkJoinPool pool = new ForkJoinPool(_numThreads);
+
+        try
+        {
+            ArrayList<ForkJoinTask<ColumnStatistics>> tasks = new ArrayList<ForkJoinTask<ColumnStatistics>>(
+                    catalog.columns.length);
+
+            for (int c = 0; c < catalog.columns.length; ++c)
+            {
+                final int column = c;
+
+                tasks.add(pool.submit(new Callable<ColumnStatistics>()
+                {
+                    @Override
+                    public ColumnStatistics call()
+                    {
+                        return catalog.scanColumn(column);
+                    }
+                }));
+            }
+
+            for (int c = 0; c < catalog.columns.length; ++c)
+            {
+                catalog.columns[c] = tasks.get(c).join();
+            }
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+
+        return catalog;
+    }
+
+    public int getNumColumns()
+    {
+        return columns.length;
+    }
+
+    /**
+     * Returns the statistics of a single column.
+     * 
+     * @param _column column index
+     * @return statistics of the column
+     */
+    public ColumnStatistics getColumnStatistics(int _column)
+    {
+        return columns[_column];
+    }
+
+    /**
+     * Returns the statistics of a pair of columns, scanning the pair the first time it is requested. The values of a
+     * pair are equal when both of their values are.
+     * 
+     * @param _column1 first column index
+     * @param _column2 second column index
+     * @return statistics of the pair
+     */
+    public synchronized ColumnStatistics getPairStatistics(int _column1, int _column2)
+    {
+        Long pair = ((long) _column1 << 32) | _column2;
+        ColumnStatistics statistics = pairs.get(pair);
+
+        if (statistics == null)
+        {
+            statistics = scanPair(_column1, _column2);
+            pairs.put(pair, statistics);
+        }
+
+        return statistics;
+    }
+
+    /*
+     * Tallies the rows holding each value of a column; the last tally is of the positions beyond the end of a row
+     */
+    private ColumnStatistics scanColumn(int _column)
+    {
+        int size = store.getDictionary(_column).size();
+        int[] counts = new int[size + 1];
+
+        for (int row = 0; row < numRows; ++row)
+        {
+            counts[getCode(row, _column, size)]++;
+        }
+
+        boolean[] nulls = findNullCodes(_column, size);
+        nullCodes[_column] = nulls;
+
+        int distinctCount = 0;
+        int nullCount = 0;
+        TopValues top = new TopValues();
+
+        for (int code = 0; code <= size; ++code)
+        {
+            if (counts[code] > 0)
+            {
+                ++distinctCount;
+                top.offer(code, counts[code]);
+
+                if (nulls[code])
+                {
+                    nullCount += counts[code];
+                }
+            }
+        }
+
+        String[] topValues = new String[top.size];
+        for (int i = 0; i < top.size; ++i)
+        {
+            topValues[i] = decode(_column, (int) top.keys[i], size);
+        }
+
+        return new ColumnStatistics(numRows, distinctCount, nullCount, topValues,
+                Arrays.copyOf(top.counts, top.size));
+    }
+
+    /*
+     * Tallies the rows holding each pair of values of two columns in an open-addressed table keyed by both codes
+     */
+    private ColumnStatistics scanPair(int _column1, int _column2)
+    {
+        int size1 = store.getDictionary(_column1).size();
+        int size2 = store.getDictionary(_column2).size();
+        boolean[] nulls1 = nullCodes[_column1];
+        boolean[] nulls2 = nullCodes[_column2];
+
+        int capacity = 2;
+        while (capacity < numRows * 2)
+        {
+            capacity <<= 1;
+        }
+
+        long[] keys = new long[capacity];
+        int[] counts = new int[capacity];
+        Arrays.fill(keys, EMPTY_SLOT);
+        int mask = capacity - 1;
+        int distinctCount = 0;
+        int nullCount = 0;
+
+        for (int row = 0; row < numRows; ++row)
+        {
+            int code1 = getCode(row, _column1, size1);
+            int code2 = getCode(row, _column2, size2);
+            long key = ((long) code1 << 32) | code2;
+            int slot = (int) HyperLogLog.mix(key) & mask;
+
+            while (keys[slot] != EMPTY_SLOT && keys[slot] != key)
+            {
+                slot = (slot + 1) & mask;
+            }
+
+            if (keys[slot] == EMPTY_SLOT)
+            {
+                keys[slot] = key;
+                ++distinctCount;
+            }
+
+            counts[slot]++;
+
+            if (nulls1[code1] || nulls2[code2])
+            {
+                ++nullCount;
+            }
+        }
+
+        TopValues top = new TopValues();
+        for (int slot = 0; slot < capacity; ++slot)
+        {
+            if (keys[slot] != EMPTY_SLOT)
+            {
+                top.offer(keys[slot], counts[slot]);
+            }
+        }
+
+        String[] topValues = new String[top.size];
+        for (int i = 0; i < top.size; ++i)
+        {
+            int code1 = (int) (top.keys[i] >>> 32);
+            int code2 = (int) top.keys[i];
+            topValues[i] = decode(_column1, code1, size1) + " :: " + decode(_column2, code2, size2);
+        }
+
+        return new ColumnStatistics(numRows, distinctCount, nullCount, topValues,
+                Arrays.copyOf(top.counts, top.size));
+    }
+
+    /*
+     * Marks the codes of a column whose values are null: blank values and, at code _size, no value
+     */
+    private boolean[] findNullCodes(int _column, int _size)
+    {
+        boolean[] nulls = new boolean[_size + 1];
+
+        for (int code = 0; code < _size; ++code)
+        {
+            nulls[code] = TimestampParser.isBlank(store.getDictionary(_column).decode(code));
+        }
+        nulls[_size] = true;
+
+        return nulls;
+    }
+
+    /*
+     * Returns the code of the value at the given position, or _size for a position beyond the end of the row
+     */
+    private int getCode(int _row, int _column, int _size)
+    {
+        int code = store.getCode(_row, _column);
+
+        return (code == ColumnStore.NO_VALUE) ? _size : code;
+    }
+
+    private String decode(int _column, int _code, int _size)
+    {
+        return (_code == _size) ? "" : store.getDictionary(_column).decode(_code);
+    }
+
+    /*
+     * Keeps the NUM_TOP_VALUES keys offered with the highest counts, most frequent first; of equal counts, the key
+     * offered first ranks higher
+     */
+    private static class TopValues
+    {
+        private long[] keys = new long[NUM_TOP_VALUES];
+        private int[] counts = new int[NUM_TOP_VALUES];
+        private int size = 0;
+
+        private void offer(long _key, int _count)
+        {
+            if (size == NUM_TOP_VALUES && _count <= counts[size - 1])
+            {
+                return;
+            }
+
+            int i = Math.min(size, NUM_TOP_VALUES - 1);
+            while (i > 0 && counts[i - 1] < _count)
+            {
+                keys[i] = keys[i - 1];
+                counts[i] = counts[i - 1];
+                --i;
+            }
+
+            keys[i] = _key;
+            counts[i] = _count;
+            size = Math.min(size + 1, NUM_TOP_VALUES);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package temporal.dedup.records;
+
+import java.util.Arrays;
+
+import temporal.dedup.utils.TimestampParser;
+
+/**
+ * Converts the values of a single timestamp column of a ColumnStore into numerical timestamps. Conversions are
+ * memoized by dictionary code, so each distinct value of the column is converted once no matter how many rows hold it;
+ * every other conversion is an array lookup. The format of a date column is detected from its first non-blank value
+ * and the remaining values are parsed in that format first, falling back to every supported format only for values
+ * that are not in it.
+ * 
+ * A converter is bound to the store it was created for and, like TimestampParser, must only be used by one thread at a
+ * time; see ParsePlan.createConverters.
+ */
+public class TimestampConverter
+{
+    private static final int INITIAL_CAPACITY = 64;
+
+    private DataRecord.TimestampGranularity granularity;
+    private ColumnStore store;
+    private int column;
+    private TimestampParser parser;
+    private TimestampParser.DateFormat dateFormat;
+
+    /*
+     * Timestamps of the values converted so far, indexed by dictionary code
+     */
+    private long[] timestamps;
+    private boolean[] converted;
+
+    /**
+     * @param _granularity granularity of the timestamps held by the column (EXACT, TIME_OF_DAY or DATE)
+     * @param _store       store holding the column
+     * @param _column      column index
+     */
+    public TimestampConverter(DataRecord.TimestampGranularity _granularity, ColumnStore _store, int _column)
+    {
+        granularity = _granularity;
+        store = _store;
+        column = _column;
+        parser = new TimestampParser();
+        dateFormat = null;
+
+        timestamps = new long[INITIAL_CAPACITY];
+        converted = new boolean[INITIAL_CAPACITY];
+    }
+
+    public DataRecord.TimestampGranularity getGranularity()
+    {
+        return granularity;
+    }
+
+    /**
+     * Returns the timestamp held by the column in the given row, or 0 if the row holds no value in the column or the
+     * value can not be converted.
+     * 
+     * @param _row row index
+     * @return timestamp in seconds (or as given, for EXACT timestamps)
+     */
+    public long convert(int _row)
+    {
+        int code = store.getCode(_row, column);
+
+        if (code == ColumnStore.NO_VALUE)
+        {
+            return 0;
+        }
+
+        if (code < converted.length && converted[code])
+        {
+            return timestamps[code];
+        }
+
+        long timestamp = convert(store.getValue(_row, column));
+
+        if (code >= converted.length)
+        {
+            int capacity = Math.max(code + 1, converted.length * 2);
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            converted = Arrays.copyOf(converted, capacity);
+        }
+
+        timestamps[code] = timestamp;
+        converted[code] = true;
+
+        return timestamp;
+    }
+
+    /*
+     * Converts a value that has not been converted before
+     */
+    private long convert(String _value)
+    {
+        if (granularity == DataRecord.TimestampGranularity.EXACT)
+        {
+            return parser.parseExact(_value);
+        }
+        else if (granularity == DataRecord.TimestampGranularity.TIME_OF_DAY)
+        {
+            return parser.parseTimeOfDay(_value);
+        }
+        else if (TimestampParser.isBlank(_value))
+        {
+            return 0;
+        }
+
+        // the first date that is in a supported format establishes the format of the column
+        if (dateFormat == null)
+        {
+            dateFormat = parser.detectDateFormat(_value);
+
+            if (dateFormat == null)
+            {
+                return 0;
+            }
+        }
+
+        long timestamp = parser.parseDate(_value, dateFormat);
+
+        if (timestamp == TimestampParser.INVALID)
+        {
+            timestamp = parser.parseDate(_value);
+        }
+
+        return timestamp;
+    }
+}
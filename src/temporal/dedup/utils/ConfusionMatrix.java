@@ -1,11 +1,14 @@
 package temporal.dedup.utils;
 
 import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
 import java.util.ArrayList;
+import java.util.BitSet;
 
+import temporal.dedup.io.InputSources;
 import temporal.dedup.records.DataRecord;
 
 /**
@@ -14,8 +17,8 @@ import temporal.dedup.records.DataRecord;
  */
 public class ConfusionMatrix
 {
-    private ArrayList<Integer> actual;
-    private ArrayList<Integer> predicted;
+    private DuplicateRegistry actual;
+    private DuplicateRegistry predicted;
 
     private int tn;
     private int fn;
@@ -44,8 +47,8 @@ public class ConfusionMatrix
     {
         sourceSize = _records.size();
 
-        actual = new ArrayList<Integer>();
-        predicted = new ArrayList<Integer>();
+        actual = new DuplicateRegistry(sourceSize - 1);
+        predicted = new DuplicateRegistry();
 
         tn = fn = tp = fp = 0;
         precision = recall = f1score = mcc = 0.0;
@@ -53,9 +56,8 @@ public class ConfusionMatrix
         // read in values (one per line) and add to actual list (check to see if already there before adding)
         try
         {
-            File file = new File(_truthSource); // creates a new file instance
-            FileReader fr = new FileReader(file); // reads the file
-            BufferedReader br = new BufferedReader(fr); // creates a buffering character input stream
+            // plain, gzip or zip entry input; compressed inputs are decompressed on a separate thread
+            BufferedReader br = InputSources.openReader(_truthSource);
             String line = "";
             int value = -1;
             boolean readHeader = false;
@@ -73,17 +75,20 @@ public class ConfusionMatrix
                 else
                 {
                     // parse the first value only
-                    line = line.split("\t")[0];
+                    int tab = line.indexOf('\t');
+                    if (tab >= 0)
+                    {
+                        line = line.substring(0, tab);
+                    }
                     value = Integer.parseInt(line.trim());
 
-                    if (!actual.contains(value))
+                    if (actual.add(value))
                     {
-                        actual.add(value);
                         _records.get(value).indicateAsTruthDuplicate();
                     }
                 }
             }
-            fr.close(); // closes the stream and releases the resources
+            br.close(); // closes the stream and releases the resources
 
             System.out.println("ACTUAL # DUPLICATES FROM TRUTH SOURCE: " + actual.size() + " of " + sourceSize);
         }
@@ -94,68 +99,115 @@ public class ConfusionMatrix
     }
 
     /**
-     * Provided with an array of record IDs that are predicted to be duplicates, assess the accuracy of those
+     * Provided with a registry of record IDs that are predicted to be duplicates, assess the accuracy of those
      * predictions against the truth data.
      * 
-     * @param _predicted Array of record IDs predicted to be duplicates
+     * @param _predicted Registry of record IDs predicted to be duplicates
      */
-    public void assessPrediction(ArrayList<Integer> _predicted)
+    public void assessPrediction(DuplicateRegistry _predicted)
     {
-        tn = fn = tp = fp = 0;
-        precision = recall = f1score = mcc = 0.0;
+        ArrayList<DuplicateRegistry> predictions = new ArrayList<DuplicateRegistry>(1);
+        predictions.add(_predicted);
 
-        predicted = new ArrayList<Integer>(_predicted);
-        System.out.println("PREDICTED # DUPLICATES TO ASSESS: " + predicted.size());
+        assessPredictions(null, predictions);
+    }
 
-        String FPs = "";
-        String FNs = "";
+    /**
+     * Provided with several registries of record IDs that are predicted to be duplicates (e.g. one per similarity
+     * threshold of a comparison method), assess the accuracy of each against the truth data. The confusion counts of
+     * all predictions are determined together in a single pass over the truth bitmap; the results of each are then
+     * displayed in the order given.
+     * 
+     * @param _labels    description of each prediction, displayed ahead of its results; may be null
+     * @param _predicted Registries of record IDs predicted to be duplicates
+     */
+    public void assessPredictions(ArrayList<String> _labels, ArrayList<DuplicateRegistry> _predicted)
+    {
+        int numPredictions = _predicted.size();
+        int[] tps = new int[numPredictions];
 
-        // cycle through all the predicted positive
-        for (int i = 0; i < predicted.size(); ++i)
+        long[] actualWords = actual.getBits().toLongArray();
+        long[][] predictedWords = new long[numPredictions][];
+        for (int p = 0; p < numPredictions; ++p)
         {
-            Integer value = predicted.get(i);
+            predictedWords[p] = _predicted.get(p).getBits().toLongArray();
+        }
 
-            // if actual positive
-            if (actual.contains(value))
-            {
-                ++tp;
-            }
-            // else actual negative
-            else
+        // a true positive is a bit set in both the prediction and the truth data
+        for (int w = 0; w < actualWords.length; ++w)
+        {
+            for (int p = 0; p < numPredictions; ++p)
             {
-                ++fp;
-                FPs += value + " ";
+                if (w < predictedWords[p].length)
+                {
+                    tps[p] += Long.bitCount(actualWords[w] & predictedWords[p][w]);
+                }
             }
         }
 
-        // cycle through all the actual positive
-        for (int j = 0; j < actual.size(); ++j)
+        PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out)));
+
+        for (int p = 0; p < numPredictions; ++p)
         {
-            Integer value = actual.get(j);
+            predicted = _predicted.get(p);
 
-            // if predicted negative
-            if (!predicted.contains(value))
+            if (_labels != null)
             {
-                ++fn;
-                FNs += value + " ";
+                out.println("ASSESSMENT OF PREDICTION: " + _labels.get(p));
             }
+            out.println("PREDICTED # DUPLICATES TO ASSESS: " + predicted.size());
+
+            // every predicted positive that isn't a true positive is a false positive, and vice versa for actuals
+            tp = tps[p];
+            fp = predicted.size() - tp;
+            fn = actual.size() - tp;
+
+            out.print("FALSE POSITIVES: predicted ");
+            writeIds(out, predicted.getBits(), actual.getBits());
+            out.print("FALSE NEGATIVES: predicted ");
+            writeIds(out, actual.getBits(), predicted.getBits());
+            out.flush();
+
+            calculateResults();
+            displayResults();
         }
+    }
 
-        String fpout = FPs.trim();
-        if (fpout.length() == 0)
+    /*
+     * Streams the IDs set in _ids but not in _excluded to _out, space-separated and in ascending order, followed by a
+     * line separator. Writes "none" if there are no such IDs.
+     */
+    private static void writeIds(PrintWriter _out, BitSet _ids, BitSet _excluded)
+    {
+        boolean any = false;
+
+        for (int id = _ids.nextSetBit(0); id >= 0; id = _ids.nextSetBit(id + 1))
         {
-            fpout = "none";
+            if (!_excluded.get(id))
+            {
+                if (any)
+                {
+                    _out.print(' ');
+                }
+
+                _out.print(id);
+                any = true;
+            }
         }
 
-        String fnout = FNs.trim();
-        if (fnout.length() == 0)
+        if (!any)
         {
-            fnout = "none";
+            _out.print("none");
         }
 
-        System.out.println("FALSE POSITIVES: predicted " + fpout);
-        System.out.println("FALSE NEGATIVES: predicted " + fnout);
+        _out.println();
+    }
 
+    /*
+     * Calculate the key performance parameters from the current confusion counts (tp, fp and fn)
+     */
+    private void calculateResults()
+    {
         // calculate the number of actual negatives predicted as negatives
         tn = sourceSize - tp - fp - fn;
 
@@ -170,8 +222,6 @@ public class ConfusionMatrix
 
         // MCC = [(TP*TN)-(FP*FN)] / sqrt([(TP+FP)*(TP+FN)*(TN+FP)*(TN+FN)])
         mcc = ((tp * tn) - (fp * fn)) / Math.sqrt((double) (tp + fp) * (tp + fn) * (tn + fp) * (tn + fn));
-
-        displayResults();
     }
 
     /*
@@ -0,0 +1,162 @@
+package temporal.dedup.utils;
+
+import java.util.ArrayList;
+
+/**
+ * Union-find (disjoint set) over record IDs that groups records into duplicate clusters as matches are found. Two
+ * records are in the same cluster if they are connected by any chain of matches, so the clusters are the transitive
+ * closure of the pairwise matches. Uses union by size with path halving, so maintaining the clusters over n records
+ * costs O(n alpha(n)).
+ * 
+ * Each cluster is represented by its lowest record ID, which also serves as the cluster ID. A record that has not been
+ * matched with any other record is a cluster of size one and is its own representative.
+ */
+public class DuplicateClusters
+{
+    private int[] parent;
+    private int[] size;
+
+    /*
+     * Lowest record ID in the cluster; only maintained for the root of each cluster
+     */
+    private int[] lowest;
+
+    private int numMultiRecordClusters;
+
+    public DuplicateClusters(int _numRecords)
+    {
+        parent = new int[_numRecords];
+        size = new int[_numRecords];
+        lowest = new int[_numRecords];
+        numMultiRecordClusters = 0;
+
+        for (int i = 0; i < _numRecords; ++i)
+        {
+            parent[i] = i;
+            size[i] = 1;
+            lowest[i] = i;
+        }
+    }
+
+    /*
+     * Returns the root of the tree holding _id, halving the path along the way
+     */
+    private int find(int _id)
+    {
+        while (parent[_id] != _id)
+        {
+            parent[_id] = parent[parent[_id]];
+            _id = parent[_id];
+        }
+
+        return _id;
+    }
+
+    /**
+     * Merges the clusters of the two given records.
+     * 
+     * @param _id1 first record ID
+     * @param _id2 second record ID
+     * @return true if the records were previously in different clusters; false otherwise
+     */
+    public boolean union(int _id1, int _id2)
+    {
+        int root1 = find(_id1);
+        int root2 = find(_id2);
+
+        if (root1 == root2)
+        {
+            return false;
+        }
+
+        // a merge of two multi-record clusters reduces their number by one; a merge involving a singleton may add one
+        if (size[root1] > 1 && size[root2] > 1)
+        {
+            --numMultiRecordClusters;
+        }
+        else if (size[root1] == 1 && size[root2] == 1)
+        {
+            ++numMultiRecordClusters;
+        }
+
+        // attach the smaller tree beneath the larger one
+        if (size[root1] < size[root2])
+        {
+            int swap = root1;
+            root1 = root2;
+            root2 = swap;
+        }
+
+        parent[root2] = root1;
+        size[root1] += size[root2];
+        lowest[root1] = Math.min(lowest[root1], lowest[root2]);
+
+        return true;
+    }
+
+    /**
+     * Returns the ID of the cluster the given record belongs to. The cluster ID is the record ID of the cluster's
+     * representative, i.e. the lowest record ID in the cluster; keeping only the record whose ID is its cluster ID
+     * leaves one survivor per set of duplicates.
+     * 
+     * @param _id record ID
+     * @return cluster ID
+     */
+    public int getClusterId(int _id)
+    {
+        return lowest[find(_id)];
+    }
+
+    /**
+     * Returns the number of records in the cluster the given record belongs to.
+     * 
+     * @param _id record ID
+     * @return cluster size (one if the record has not been matched)
+     */
+    public int getClusterSize(int _id)
+    {
+        return size[find(_id)];
+    }
+
+    /**
+     * Returns the number of clusters that hold more than one record.
+     * 
+     * @return number of duplicate clusters
+     */
+    public int getNumDuplicateClusters()
+    {
+        return numMultiRecordClusters;
+    }
+
+    /**
+     * Returns the member record IDs of every cluster that holds more than one record. Clusters are ordered by cluster
+     * ID and members are in ascending order, so the first member of each cluster is its representative.
+     * 
+     * @return member record IDs of each duplicate cluster
+     */
+    public ArrayList<ArrayList<Integer>> getDuplicateClusters()
+    {
+        ArrayList<ArrayList<Integer>> clusters = new ArrayList<ArrayList<Integer>>(numMultiRecordClusters);
+
+        // position of each root's cluster within the returned list, assigned when its representative is encountered
+        int[] position = new int[parent.length];
+
+        for (int i = 0; i < parent.length; ++i)
+        {
+            int root = find(i);
+
+            if (size[root] > 1)
+            {
+                if (lowest[root] == i)
+                {
+                    position[root] = clusters.size();
+                    clusters.add(new ArrayList<Integer>(size[root]));
+                }
+
+                clusters.get(position[root]).add(i);
+            }
+        }
+
+        return clusters;
+    }
+}
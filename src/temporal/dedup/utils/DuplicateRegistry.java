@@ -0,0 +1,102 @@
+package temporal.dedup.utils;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+
+/**
+ * Set of record IDs flagged as duplicates, backed by a bitmap over record IDs. Record IDs are assigned sequentially at
+ * parse time, so the bitmap is dense and a single bit per record suffices. Adding an ID and checking for an ID are
+ * constant time, the number of IDs is tracked as they are added, and IDs are iterated in ascending order.
+ */
+public class DuplicateRegistry
+{
+    private BitSet ids;
+    private int cardinality;
+
+    public DuplicateRegistry()
+    {
+        ids = new BitSet();
+        cardinality = 0;
+    }
+
+    /**
+     * @param _expectedMaxId largest record ID expected to be added; used to size the bitmap up front
+     */
+    public DuplicateRegistry(int _expectedMaxId)
+    {
+        ids = new BitSet(_expectedMaxId + 1);
+        cardinality = 0;
+    }
+
+    /**
+     * Adds the given record ID to the registry.
+     * 
+     * @param _id record ID
+     * @return true if the ID was not already present; false otherwise
+     */
+    public boolean add(int _id)
+    {
+        boolean added = false;
+
+        if (!ids.get(_id))
+        {
+            ids.set(_id);
+            ++cardinality;
+            added = true;
+        }
+
+        return added;
+    }
+
+    public boolean contains(int _id)
+    {
+        return ids.get(_id);
+    }
+
+    /**
+     * Returns the number of record IDs in the registry.
+     * 
+     * @return number of record IDs
+     */
+    public int size()
+    {
+        return cardinality;
+    }
+
+    /**
+     * Supports ordered iteration: returns the smallest record ID in the registry that is greater than or equal to
+     * _from, or -1 if there is none. Iterate with: for (int id = r.nextId(0); id >= 0; id = r.nextId(id + 1))
+     * 
+     * @param _from record ID to start searching from (inclusive)
+     * @return next record ID in the registry or -1
+     */
+    public int nextId(int _from)
+    {
+        return ids.nextSetBit(_from);
+    }
+
+    /**
+     * Returns the record IDs in the registry in ascending order.
+     * 
+     * @return list of record IDs
+     */
+    public ArrayList<Integer> toList()
+    {
+        ArrayList<Integer> list = new ArrayList<Integer>(cardinality);
+
+        for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1))
+        {
+            list.add(id);
+        }
+
+        return list;
+    }
+
+    /*
+     * Direct access to the underlying bitmap for bulk set operations within this package
+     */
+    BitSet getBits()
+    {
+        return ids;
+    }
+}
@@ -0,0 +1,111 @@
+package temporal.dedup.utils;
+
+/**
+ * HyperLogLog sketch of the number of distinct values added to it. Each value is added as a 64-bit hash; the sketch
+ * keeps one register per bucket (2^precision buckets, addressed by the leading bits of the hash) holding the largest
+ * rank (position of the first set bit) seen amongst the remaining bits. Memory is one byte per register no matter how
+ * many values are added, and the relative standard error of the estimate is about 1.04 / sqrt(2^precision).
+ * 
+ * Small cardinalities, at which most registers are still empty, are estimated by linear counting.
+ */
+public class HyperLogLog
+{
+    private int precision;
+    private byte[] registers;
+
+    /**
+     * @param _precision number of hash bits addressing the registers (4 to 18)
+     */
+    public HyperLogLog(int _precision)
+    {
+        if (_precision < 4 || _precision > 18)
+        {
+            throw new IllegalArgumentException("HyperLogLog precision must be between 4 and 18: " + _precision);
+        }
+
+        precision = _precision;
+        registers = new byte[1 << _precision];
+    }
+
+    /**
+     * Adds a value to the sketch. The hash should be well mixed (see mix).
+     * 
+     * @param _hash 64-bit hash of the value
+     */
+    public void add(long _hash)
+    {
+        int index = (int) (_hash >>> (64 - precision));
+
+        // the marker bit bounds the rank should every remaining bit be zero
+        long remaining = (_hash << precision) | (1L << (precision - 1));
+        byte rank = (byte) (Long.numberOfLeadingZeros(remaining) + 1);
+
+        if (rank > registers[index])
+        {
+            registers[index] = rank;
+        }
+    }
+
+    /**
+     * Returns the estimated number of distinct values added to the sketch.
+     * 
+     * @return estimated cardinality
+     */
+    public double estimate()
+    {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+
+        for (int i = 0; i < m; ++i)
+        {
+            sum += 1.0 / (1L << registers[i]);
+
+            if (registers[i] == 0)
+            {
+                ++zeros;
+            }
+        }
+
+        double alpha = 0.7213 / (1 + 1.079 / m);
+        double estimate = alpha * m * m / sum;
+
+        if (estimate <= 2.5 * m && zeros > 0)
+        {
+            // linear counting
+            estimate = m * Math.log((double) m / zeros);
+        }
+
+        return estimate;
+    }
+
+    /**
+     * Returns the relative standard error of the estimates of a sketch of the given precision.
+     * 
+     * @param _precision number of hash bits addressing the registers
+     * @return relative standard error
+     */
+    public static double getRelativeStandardError(int _precision)
+    {
+        return 1.04 / Math.sqrt(1 << _precision);
+    }
+
+    /**
+     * Mixes the bits of a value (the finalizer of MurmurHash3). The mix is a bijection, so distinct values always yield
+     * distinct hashes.
+     * 
+     * @param _value value to hash
+     * @return 64-bit hash
+     */
+    public static long mix(long _value)
+    {
+        long h = _value;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+
+        return h;
+    }
+}
@@ -1,10 +1,23 @@
 package temporal.dedup.utils;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
 /**
  * String representation of the Longest Common Sequence concept.
  */
 public class LCS
 {
+    /*
+     * Number of sequences at or below which a tree reduction is carried out by a single task
+     */
+    private static final int REDUCTION_THRESHOLD = 8;
+
     /*
      * LCS sequence length
      */
@@ -37,6 +50,27 @@ public class LCS
         }
     }
 
+    /**
+     * Create the representation of a longest common subsequence of integer-coded elements, each code being the index
+     * of its string representation in _elements. An empty subsequence is given a length of one, as the string
+     * constructor has always given it.
+     * 
+     * @param _lcs      element codes of the LCS, in order
+     * @param _elements string representation of each element code
+     */
+    public LCS(int[] _lcs, List<String> _elements)
+    {
+        StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < _lcs.length; ++i)
+        {
+            builder.append(_elements.get(_lcs[i])).append(' ');
+        }
+
+        sequence = builder.toString();
+        length = (_lcs.length == 0) ? 1 : _lcs.length;
+    }
+
     /**
      * Returns the longest common subsequence represented by this object as a string representation with a single space
      * between individual elements.
@@ -60,7 +94,8 @@ public class LCS
 
     /**
      * Returns the Longest Common Subsequence (LCS) between strings _x and _y where each element is expected to be an
-     * integer separated by a space.
+     * integer separated by a space. Adapts the strings to the integer sequence engine (see getLCS(int[], int[])), so
+     * elements are compared as strings but only ever hashed once.
      * 
      * @param _x First string with elements separated by spaces
      * @param _y Second string with elements separated by spaces
@@ -74,37 +109,88 @@ public class LCS
             return new LCS(0, "");
         }
 
-        // parse out the elements in _x and _y
-        String[] xitems = _x.split(" ");
-        String[] yitems = _y.split(" ");
+        // number the distinct elements of _x and _y
+        HashMap<String, Integer> codes = new HashMap<String, Integer>();
+        ArrayList<String> elements = new ArrayList<String>();
+        int[] x = encode(_x.split(" "), codes, elements);
+        int[] y = encode(_y.split(" "), codes, elements);
 
-        int m = xitems.length;
-        int n = yitems.length;
-        int[][] z = new int[m + 1][n + 1];
+        return new LCS(getLCS(x, y), elements);
+    }
 
-        /*
-         * Construct z[m+1][n+1]. z[i][j] contains the length of the LCS between _x[0..i-1] and _y[0..j-1].
-         */
-        for (int i = 0; i <= m; ++i)
+    /**
+     * Returns the length of the longest common subsequence of two integer sequences. The length is computed
+     * bit-parallel (see advance), one machine word per 64 elements of _y, in O(m * n / 64) time and O(n / 64) space
+     * for sequences of lengths m and n.
+     * 
+     * @param _x first sequence
+     * @param _y second sequence
+     * @return length of the LCS
+     */
+    public static int getLCSLength(int[] _x, int[] _y)
+    {
+        int words = (_y.length + 63) >>> 6;
+        long[][] masks = new long[_x.length][];
+        matchMasks(_x, _y, masks);
+
+        long[] v = allOnes(_y.length);
+        long[] next = new long[words];
+
+        for (int i = 0; i < _x.length; ++i)
+        {
+            if (masks[i] != null)
+            {
+                advance(v, masks[i], next, _y.length);
+                long[] swap = v;
+                v = next;
+                next = swap;
+            }
+        }
+
+        return _y.length - popcount(v, _y.length);
+    }
+
+    /**
+     * Returns the longest common subsequence of two integer sequences. Of the longest common subsequences, the one
+     * returned is the one the classic dynamic programming table yields when traced back from its last cell (taking
+     * matching elements, otherwise stepping toward the larger neighbour, preferring _y's direction on ties), so the
+     * result is exactly that of the original string-based implementation.
+     * 
+     * Rather than the (m + 1) x (n + 1) table of lengths, the rows of the table are computed bit-parallel and kept as
+     * bit vectors, one bit per cell (rows in which no element matches share the previous row's vector); each length
+     * the traceback consults is recovered from its row by a population count.
+     * 
+     * @param _x first sequence
+     * @param _y second sequence
+     * @return elements of the LCS, in order
+     */
+    public static int[] getLCS(int[] _x, int[] _y)
+    {
+        int m = _x.length;
+        int n = _y.length;
+        int words = (n + 63) >>> 6;
+        long[][] masks = new long[m][];
+        matchMasks(_x, _y, masks);
+
+        // rows[i] holds bit j - 1 clear exactly where z[i][j] = z[i][j - 1] + 1
+        long[][] rows = new long[m + 1][];
+        rows[0] = allOnes(n);
+
+        for (int i = 1; i <= m; ++i)
         {
-            for (int j = 0; j <= n; ++j)
+            if (masks[i - 1] == null)
             {
-                if (i == 0 || j == 0)
-                {
-                    z[i][j] = 0;
-                }
-                else if (xitems[i - 1].equals(yitems[j - 1]))
-                {
-                    z[i][j] = z[i - 1][j - 1] + 1;
-                }
-                else
-                {
-                    z[i][j] = Math.max(z[i - 1][j], z[i][j - 1]);
-                }
+                rows[i] = rows[i - 1];
+            }
+            else
+            {
+                rows[i] = new long[words];
+                advance(rows[i - 1], masks[i - 1], rows[i], n);
             }
         }
 
-        String lcs = new String();
+        int[] lcs = new int[n - popcount(rows[m], n)];
+        int k = lcs.length;
 
         /*
          * Construct the elements of the LCS
@@ -113,14 +199,14 @@ public class LCS
         while (i > 0 && j > 0)
         {
             // If current elements in _x and _y are the same, then current element is part of the LCS
-            if (xitems[i - 1].equals(yitems[j - 1]))
+            if (_x[i - 1] == _y[j - 1])
             {
-                lcs = xitems[i - 1] + " " + lcs;
+                lcs[--k] = _x[i - 1];
                 --i;
                 --j;
             }
             // Otherwise, go in the direction of the larger value
-            else if (z[i - 1][j] > z[i][j - 1])
+            else if (length(rows[i - 1], j) > length(rows[i], j - 1))
             {
                 --i;
             }
@@ -130,8 +216,204 @@ public class LCS
             }
         }
 
-        LCS returnValue = new LCS(z[m][n], lcs);
+        return lcs;
+    }
+
+    /**
+     * Returns a common subsequence of every sequence given, reduced pairwise as a balanced tree on the given pool: each
+     * half of the sequences is reduced to a common subsequence of its own, and the two halves' are reduced to theirs.
+     * Unlike the chain LCS(LCS(LCS(s0, s1), s2), ...), the reductions of the two halves are independent and so proceed
+     * concurrently. The tree's shape depends only on the number of sequences, so the result does not depend on the
+     * number of threads; it is not, in general, the chain's result, as the LCS of two sequences is not associative.
+     * 
+     * @param _sequences sequences to reduce, at least one
+     * @param _pool      pool to reduce the sequences on
+     * @return elements of the common subsequence, in order
+     */
+    public static int[] getLCS(List<int[]> _sequences, ForkJoinPool _pool)
+    {
+        Reduction reduction = new Reduction(_sequences, 0, _sequences.size());
+
+        // a task already running on the pool reduces on it directly, rather than waiting on a submission to it
+        if (ForkJoinTask.inForkJoinPool() && ForkJoinTask.getPool() == _pool)
+        {
+            return reduction.invoke();
+        }
+
+        return _pool.invoke(reduction);
+    }
 
-        return returnValue;
+    /*
+     * Assigns each element a code, numbering elements not seen before in the order they are first encountered
+     */
+    private static int[] encode(String[] _items, HashMap<String, Integer> _codes, ArrayList<String> _elements)
+    {
+        int[] encoded = new int[_items.length];
+
+        for (int i = 0; i < _items.length; ++i)
+        {
+            Integer code = _codes.get(_items[i]);
+
+            if (code == null)
+            {
+                code = _elements.size();
+                _codes.put(_items[i], code);
+                _elements.add(_items[i]);
+            }
+
+            encoded[i] = code;
+        }
+
+        return encoded;
+    }
+
+    /*
+     * Sets _masks[i] to the bit vector of the positions of _y holding _x[i], or null where _x[i] is not in _y; elements
+     * of _x that are equal share a vector
+     */
+    private static void matchMasks(int[] _x, int[] _y, long[][] _masks)
+    {
+        int words = (_y.length + 63) >>> 6;
+        HashMap<Integer, long[]> bySymbol = new HashMap<Integer, long[]>();
+
+        for (int j = 0; j < _y.length; ++j)
+        {
+            long[] mask = bySymbol.get(_y[j]);
+
+            if (mask == null)
+            {
+                mask = new long[words];
+                bySymbol.put(_y[j], mask);
+            }
+
+            mask[j >>> 6] |= 1L << j;
+        }
+
+        for (int i = 0; i < _x.length; ++i)
+        {
+            _masks[i] = bySymbol.get(_x[i]);
+        }
+    }
+
+    /*
+     * Computes the next row's vector from the current one (Hyyro's variant of the Allison-Dix recurrence):
+     * V' = (V + (V & M)) | (V & ~M), the addition carrying across words and discarding bits beyond _n
+     */
+    private static void advance(long[] _v, long[] _mask, long[] _next, int _n)
+    {
+        long carry = 0;
+
+        for (int w = 0; w < _v.length; ++w)
+        {
+            long v = _v[w];
+            long u = v & _mask[w];
+            long sum = v + u;
+            long carryOut = (Long.compareUnsigned(sum, v) < 0) ? 1 : 0;
+            long total = sum + carry;
+
+            if (carry != 0 && total == 0)
+            {
+                carryOut = 1;
+            }
+
+            _next[w] = total | (v & ~_mask[w]);
+            carry = carryOut;
+        }
+
+        int tail = _n & 63;
+        if (tail != 0)
+        {
+            _next[_v.length - 1] &= (1L << tail) - 1;
+        }
+    }
+
+    /*
+     * Returns z[i][_j], the length of the LCS of the first i elements of the first sequence and the first _j of the
+     * second, from row i's vector
+     */
+    private static int length(long[] _row, int _j)
+    {
+        return _j - popcount(_row, _j);
+    }
+
+    /*
+     * Counts the set bits amongst the first _bits bits of the vector
+     */
+    private static int popcount(long[] _v, int _bits)
+    {
+        int count = 0;
+        int full = _bits >>> 6;
+
+        for (int w = 0; w < full; ++w)
+        {
+            count += Long.bitCount(_v[w]);
+        }
+
+        int tail = _bits & 63;
+        if (tail != 0)
+        {
+            count += Long.bitCount(_v[full] & ((1L << tail) - 1));
+        }
+
+        return count;
+    }
+
+    /*
+     * Returns a vector of _n set bits
+     */
+    private static long[] allOnes(int _n)
+    {
+        long[] v = new long[(_n + 63) >>> 6];
+        Arrays.fill(v, -1L);
+
+        int tail = _n & 63;
+        if (tail != 0)
+        {
+            v[v.length - 1] = (1L << tail) - 1;
+        }
+
+        return v;
+    }
+
+    /*
+     * Reduces the sequences in [_from, _to) to a common subsequence, forking the reduction of the first half
+     */
+    private static class Reduction extends RecursiveTask<int[]>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private List<int[]> sequences;
+        private int from;
+        private int to;
+
+        private Reduction(List<int[]> _sequences, int _from, int _to)
+        {
+            sequences = _sequences;
+            from = _from;
+            to = _to;
+        }
+
+        @Override
+        protected int[] compute()
+        {
+            if (to - from == 1)
+            {
+                return sequences.get(from);
+            }
+
+            int middle = (from + to) >>> 1;
+            Reduction first = new Reduction(sequences, from, middle);
+            Reduction second = new Reduction(sequences, middle, to);
+
+            if (to - from <= REDUCTION_THRESHOLD)
+            {
+                return getLCS(first.compute(), second.compute());
+            }
+
+            first.fork();
+            int[] secondLCS = second.compute();
+
+            return getLCS(first.join(), secondLCS);
+        }
     }
 }
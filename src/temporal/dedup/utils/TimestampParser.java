@@ -0,0 +1,415 @@
+package temporal.dedup.utils;
+
+import java.util.Calendar;
+import java.util.Date;
+
+/**
+ * Converts the string representations of timestamps, dates and times of day into numerical timestamps (seconds since
+ * Jan 1, 1970). Values are parsed character by character: no substrings are created and no exceptions are thrown or
+ * caught, so a value that is not in a given format costs no more than the characters examined to rule the format out.
+ * A single Calendar is reused for every conversion, so a parser must only be used by one thread at a time.
+ * 
+ * Conversions match those of the exception-driven parsers they replace: numbers are recognized as Integer.parseInt and
+ * Long.parseLong recognize them, month names by their first three letters, and dates are resolved by a lenient
+ * Calendar in the default time zone.
+ */
+public class TimestampParser
+{
+    /**
+     * Supported date formats, in the order they are attempted when a date's format is not known
+     */
+    public enum DateFormat
+    {
+        ISO_8601, // e.g. 2018-02-23
+        DD_MONTH_YYYY, // e.g. 23 February 2018
+        DD_MON_YY // e.g. 23-Feb-18
+    }
+
+    /**
+     * Returned by parseDate when the value is not in the given format
+     */
+    public static final long INVALID = Long.MIN_VALUE;
+
+    private static final String[] MONTHS = { "jan", "feb", "mar", "apr", "may", "jun", "jul", "aug", "sep", "oct",
+            "nov", "dec" };
+
+    private Calendar calendar;
+
+    /*
+     * Date a time of day is placed on (see parseTimeOfDay)
+     */
+    private int timeOfDayYear;
+    private int timeOfDayMonth;
+    private int timeOfDayDay;
+
+    /*
+     * Value of the number most recently recognized by parseNumber
+     */
+    private long number;
+
+    /*
+     * Fields of the date most recently recognized by matchDate
+     */
+    private int year;
+    private int month;
+    private int day;
+
+    @SuppressWarnings("deprecation")
+    public TimestampParser()
+    {
+        calendar = Calendar.getInstance();
+
+        // times of day have always been placed on the date given by these (deprecated) fields of the current date
+        Date now = new Date();
+        timeOfDayYear = now.getYear();
+        timeOfDayMonth = now.getMonth();
+        timeOfDayDay = now.getDay();
+    }
+
+    /**
+     * Converts an exact timestamp, given as a whole number.
+     * 
+     * @param _value value to convert
+     * @return the number, or 0 if the value is not a whole number
+     */
+    public long parseExact(String _value)
+    {
+        return parseNumber(_value, 0, _value.length(), Long.MAX_VALUE) ? number : 0;
+    }
+
+    /**
+     * Provided a string representation of a time of day (e.g. 9:15:00 PM), return as a numerical timestamp
+     * representing the number of seconds between Jan 1, 1970 and the time of day on the date it is placed on. If the
+     * string can not be recognized as a time of day, 0 will be returned.
+     * 
+     * @param _value time of day to be converted into a timestamp (in seconds)
+     * @return seconds between Jan 1, 1970 and the given time of day, or 0
+     */
+    public long parseTimeOfDay(String _value)
+    {
+        if (isBlank(_value))
+        {
+            return 0;
+        }
+
+        // parse time field in to hrs, mins, secs (remember to use PM to add 12 to hrs)
+        int firstColon = _value.indexOf(':');
+        if (firstColon < 0 || !parseNumber(_value, 0, firstColon, Integer.MAX_VALUE))
+        {
+            return 0;
+        }
+        int hrs = (int) number;
+
+        int secondColon = _value.indexOf(':', firstColon + 1);
+        if (secondColon < 0 || !parseNumber(_value, firstColon + 1, secondColon, Integer.MAX_VALUE))
+        {
+            return 0;
+        }
+        int mins = (int) number;
+
+        int secsStart = secondColon + 1;
+        if (secsStart + 2 > _value.length() || !parseNumber(_value, secsStart, secsStart + 2, Integer.MAX_VALUE))
+        {
+            return 0;
+        }
+        int secs = (int) number;
+
+        // if the time is 12, we need to reset to 0 for midnight (AM) and 12 for noon (PM)
+        if (hrs == 12)
+        {
+            hrs = hrs - 12;
+        }
+
+        if (_value.indexOf("PM", secsStart) >= 0)
+        {
+            hrs += 12;
+        }
+
+        calendar.clear();
+        calendar.set(timeOfDayYear, timeOfDayMonth, timeOfDayDay, hrs, mins, secs);
+
+        return calendar.getTimeInMillis() / 1000L;
+    }
+
+    /**
+     * Provided a string representation of a date in any supported format, return as a numerical timestamp representing
+     * the number of seconds between Jan 1, 1970 and the date. Formats are attempted in the order they are declared by
+     * DateFormat. If the string is not in a supported format, 0 will be returned.
+     * 
+     * @param _value date to be converted into a timestamp (in seconds)
+     * @return seconds between Jan 1, 1970 and the given date, or 0
+     */
+    public long parseDate(String _value)
+    {
+        if (isBlank(_value))
+        {
+            return 0;
+        }
+
+        DateFormat[] formats = DateFormat.values();
+
+        for (int f = 0; f < formats.length; ++f)
+        {
+            if (matchDate(_value, formats[f]))
+            {
+                return toTimestamp();
+            }
+        }
+
+        // date is not a currently supported format
+        return 0;
+    }
+
+    /**
+     * Converts a date known (or expected) to be in the given format. A value that is also a valid ISO 8601 date (e.g.
+     * 2018-003-23, whose month is a number but not two characters long) is converted as ISO 8601, as it would have
+     * been by parseDate; otherwise no other format is attempted.
+     * 
+     * @param _value  date to be converted into a timestamp (in seconds)
+     * @param _format format of the date
+     * @return seconds between Jan 1, 1970 and the given date, or INVALID if the value is not in the given format
+     */
+    public long parseDate(String _value, DateFormat _format)
+    {
+        // ISO 8601 and DD-mon-YY are the only formats a single value may be in at once
+        if (_format == DateFormat.DD_MON_YY && matchDate(_value, DateFormat.ISO_8601))
+        {
+            return toTimestamp();
+        }
+
+        return matchDate(_value, _format) ? toTimestamp() : INVALID;
+    }
+
+    /**
+     * Determines the format of the given date, as parseDate would determine it.
+     * 
+     * @param _value date of unknown format
+     * @return format of the date, or null if it is blank or not in a supported format
+     */
+    public DateFormat detectDateFormat(String _value)
+    {
+        if (isBlank(_value))
+        {
+            return null;
+        }
+
+        DateFormat[] formats = DateFormat.values();
+
+        for (int f = 0; f < formats.length; ++f)
+        {
+            if (matchDate(_value, formats[f]))
+            {
+                return formats[f];
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Determines whether the value holds nothing but whitespace.
+     * 
+     * @param _value value to examine
+     * @return true if the value is empty once trimmed
+     */
+    public static boolean isBlank(String _value)
+    {
+        for (int i = 0; i < _value.length(); ++i)
+        {
+            if (_value.charAt(i) > ' ')
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /*
+     * Recognizes a date in the given format, setting year, month (zero-based) and day. The value is divided at the
+     * first and second separator; the first and last parts must be numbers and the middle part a number (ISO 8601) or
+     * a month name (otherwise). An unrecognized month name yields month -1, as it always has.
+     */
+    private boolean matchDate(String _value, DateFormat _format)
+    {
+        char separator = (_format == DateFormat.DD_MONTH_YYYY) ? ' ' : '-';
+
+        int first = _value.indexOf(separator);
+        if (first < 0)
+        {
+            return false;
+        }
+
+        int second = _value.indexOf(separator, first + 1);
+        if (second < 0)
+        {
+            return false;
+        }
+
+        if (!parseNumber(_value, 0, first, Integer.MAX_VALUE))
+        {
+            return false;
+        }
+        int leading = (int) number;
+
+        int middle = 0;
+        if (_format == DateFormat.ISO_8601)
+        {
+            if (!parseNumber(_value, first + 1, second, Integer.MAX_VALUE))
+            {
+                return false;
+            }
+            middle = (int) number - 1;
+        }
+        else
+        {
+            middle = monthOf(_value, first + 1, second);
+            if (middle == -2)
+            {
+                return false;
+            }
+        }
+
+        if (!parseNumber(_value, second + 1, _value.length(), Integer.MAX_VALUE))
+        {
+            return false;
+        }
+        int trailing = (int) number;
+
+        if (_format == DateFormat.ISO_8601)
+        {
+            year = leading;
+            month = middle;
+            day = trailing;
+        }
+        else
+        {
+            day = leading;
+            month = middle;
+            year = (_format == DateFormat.DD_MON_YY) ? trailing + 2000 : trailing;
+        }
+
+        return true;
+    }
+
+    /*
+     * Returns the seconds since Jan 1, 1970 at the start of the most recently recognized date
+     */
+    private long toTimestamp()
+    {
+        calendar.clear();
+        calendar.set(year, month, day);
+
+        return calendar.getTimeInMillis() / 1000L;
+    }
+
+    /*
+     * Returns the Calendar month of the month name held between _start and _end, judged by its first three letters once
+     * trimmed; -1 if the name is not recognized, or -2 if it is shorter than three letters
+     */
+    private static int monthOf(String _value, int _start, int _end)
+    {
+        while (_start < _end && _value.charAt(_start) <= ' ')
+        {
+            ++_start;
+        }
+
+        while (_end > _start && _value.charAt(_end - 1) <= ' ')
+        {
+            --_end;
+        }
+
+        if (_end - _start < 3)
+        {
+            return -2;
+        }
+
+        for (int m = 0; m < MONTHS.length; ++m)
+        {
+            String name = MONTHS[m];
+            boolean match = true;
+
+            for (int i = 0; i < 3 && match; ++i)
+            {
+                char c = _value.charAt(_start + i);
+                if (c >= 'A' && c <= 'Z')
+                {
+                    c += 'a' - 'A';
+                }
+
+                match = (c == name.charAt(i));
+            }
+
+            if (match)
+            {
+                return Calendar.JANUARY + m;
+            }
+        }
+
+        return -1;
+    }
+
+    /*
+     * Recognizes the characters between _start and _end as a number no greater in magnitude than _limit, as
+     * Integer.parseInt (for a limit of Integer.MAX_VALUE) or Long.parseLong (for Long.MAX_VALUE) would, setting number
+     */
+    private boolean parseNumber(String _value, int _start, int _end, long _limit)
+    {
+        if (_start >= _end)
+        {
+            return false;
+        }
+
+        // accumulate negatively, as the negative range is the larger
+        boolean negative = false;
+        long limit = -_limit;
+        int i = _start;
+        char first = _value.charAt(i);
+
+        if (first < '0')
+        {
+            if (first == '-')
+            {
+                negative = true;
+                limit = -_limit - 1;
+            }
+            else if (first != '+')
+            {
+                return false;
+            }
+
+            if (_end - _start == 1)
+            {
+                return false;
+            }
+
+            ++i;
+        }
+
+        long multiplyLimit = limit / 10;
+        long result = 0;
+
+        for (; i < _end; ++i)
+        {
+            int digit = Character.digit(_value.charAt(i), 10);
+
+            if (digit < 0 || result < multiplyLimit)
+            {
+                return false;
+            }
+
+            result *= 10;
+
+            if (result < limit + digit)
+            {
+                return false;
+            }
+
+            result -= digit;
+        }
+
+        number = negative ? result : -result;
+
+        return true;
+    }
+}